@@ -4,86 +4,267 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kitchen.crawler.CrawlPipeline;
+import com.kitchen.crawler.CrawlState;
+import com.kitchen.crawler.FetchEngine;
+import com.kitchen.crawler.FetchResult;
+import com.kitchen.crawler.HtmlCache;
+import com.kitchen.crawler.RecipeJsonLinesWriter;
+import com.kitchen.util.Hashing;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class RecipeDataExtractor {
+
+    public static final String DEFAULT_LISTING_URL = "https://www.kannammacooks.com/category/recipes/south-indian/page/";
+
+    public static final int MAX_LISTING_PAGES = 50;
+
+    public static final String DEFAULT_OUTPUT_FILE = "complete_indian_recipes.jsonl";
+
+    public static final String DEFAULT_CACHE_DIR = "html-cache";
+
+    public static final String DEFAULT_STATE_FILE = "crawl-state.json";
+
+    // Usage: RecipeDataExtractor [--replay] [--cache <dir>] [--state <file>] [listingUrl] [outputFile]
+    //   listingUrl may point at a StubPageServer (in the test sources) for offline runs.
+    //   --replay re-extracts everything from the HTML cache without touching the network.
+    //   Crawls are incremental: an interrupted crawl resumes, and a re-crawl only re-extracts changed
+    //   recipes and merges them into outputFile.
     public static void main(String[] args) {
-        System.out.println("Starting recipe extraction process...");
-        List<String[]> recipeLinks = extractRecipeLinks();
-        System.out.println("Total recipe links extracted: " + recipeLinks.size());
-        JsonArray recipesJson = extractRecipeDataToJson(recipeLinks);
-        saveToJson("complete_indian_recipes.json", recipesJson);
-        System.out.println("Complete recipe data saved successfully in complete_indian_recipes.json");
-    }
-    
-    public static List<String[]> extractRecipeLinks() {
-        String baseUrl = "https://www.kannammacooks.com/category/recipes/south-indian/page/";
-        List<String[]> recipeLinks = new ArrayList<>();
-        int maxPages = 50;
-        
+        boolean replay = false;
+        String cacheDir = DEFAULT_CACHE_DIR;
+        String stateFile = DEFAULT_STATE_FILE;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--replay".equals(args[i])) {
+                replay = true;
+            } else if ("--cache".equals(args[i]) && i + 1 < args.length) {
+                cacheDir = args[++i];
+            } else if ("--state".equals(args[i]) && i + 1 < args.length) {
+                stateFile = args[++i];
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        String listingUrl = positional.size() > 0 ? positional.get(0) : DEFAULT_LISTING_URL;
+        String outputFile = positional.size() > 1 ? positional.get(1) : DEFAULT_OUTPUT_FILE;
+
         try {
-            for (int i = 1; i <= maxPages; i++) {
-                System.out.println("Processing page: " + i);
-                String url = baseUrl + i;
-                Document doc = Jsoup.connect(url).userAgent("Mozilla/5.0").timeout(10000).get();
-                Elements recipes = doc.select("h2.entry-title.ast-blog-single-element a");
-                
-                for (Element recipe : recipes) {
-                    String name = recipe.text();
-                    String link = recipe.absUrl("href");
-                    recipeLinks.add(new String[]{name, link});
-                    System.out.println("Found recipe: " + name + " | " + link);
-                }
+            HtmlCache cache = new HtmlCache(Paths.get(cacheDir));
+            if (replay) {
+                runReplay(cache, listingUrl, Paths.get(outputFile));
+            } else {
+                runCrawl(cache, CrawlState.load(Paths.get(stateFile)), listingUrl, Paths.get(outputFile));
             }
-            return recipeLinks;
         } catch (IOException e) {
-            System.err.println("Error while extracting recipe links: " + e.getMessage());
+            System.err.println("Error while writing " + outputFile + ": " + e.getMessage());
             e.printStackTrace();
-            return recipeLinks;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Crawl interrupted; progress is kept in " + stateFile + " and " + outputFile);
         }
     }
-    
-    public static JsonArray extractRecipeDataToJson(List<String[]> recipeLinks) {
-        JsonArray recipesArray = new JsonArray();
-        
-        for (int i = 0; i < recipeLinks.size(); i++) {
-            String[] linkData = recipeLinks.get(i);
-            String recipeName = linkData[0];
-            String recipeLink = linkData[1];
-            System.out.println("Processing recipe (" + (i+1) + "/" + recipeLinks.size() + "): " + recipeName);
-            
-            try {
-                Document doc = Jsoup.connect(recipeLink).userAgent("Mozilla/5.0").timeout(10000).get();
-                JsonObject recipeJson = new JsonObject();
-                recipeJson.addProperty("name", recipeName);
-                recipeJson.addProperty("url", recipeLink);
-                
-                JsonArray ingredientsJsonArray = extractIngredients(doc);
-                JsonArray instructionsJsonArray = extractInstructions(doc);
-                
-                recipeJson.add("ingredients", ingredientsJsonArray);
-                recipeJson.add("instructions", instructionsJsonArray);
-                
-                recipesArray.add(recipeJson);
-                System.out.println("Successfully extracted data for recipe: " + recipeName);
-                Thread.sleep(1000); // pause between requests
-            } catch (IOException | InterruptedException e) {
-                System.err.println("Error processing " + recipeName + ": " + e.getMessage());
+
+    private static void runReplay(HtmlCache cache, String listingUrl, Path outputFile) throws IOException {
+        System.out.println("Replaying recipe extraction from " + cache.size() + " cached pages...");
+        long start = System.nanoTime();
+        try (RecipeJsonLinesWriter writer = new RecipeJsonLinesWriter(outputFile)) {
+            for (JsonNode recipe : replayFromCache(cache, listingUrl)) {
+                writer.write((ObjectNode) recipe);
+            }
+            System.out.printf("Replay extracted %d recipes in %.2f s%n",
+                              writer.getWrittenCount(), (System.nanoTime() - start) / 1e9);
+            System.out.println(writer.getWrittenCount() + " recipes saved in " + outputFile);
+        }
+    }
+
+    private static void runCrawl(HtmlCache cache, CrawlState state, String listingUrl, Path outputFile)
+            throws IOException, InterruptedException {
+        boolean resuming = state.beginRun();
+        System.out.println(resuming ? "Resuming interrupted crawl (" + state.size() + " URLs known)..."
+                                    : "Starting recipe extraction process (" + state.size() + " URLs known)...");
+        RecipeJsonLinesWriter.compact(outputFile); // converts a legacy JSON array so new lines can be appended
+        try (FetchEngine engine = FetchEngine.withDefaults();
+             RecipeJsonLinesWriter writer = new RecipeJsonLinesWriter(outputFile, true, 10, 5000)) {
+            engine.setCache(cache);
+            crawlIncremental(listingUrl, engine, cache, state, writer);
+            engine.getStats().printSummary();
+            System.out.println(writer.getWrittenCount() + " new or changed recipes merged into " + outputFile);
+        }
+        state.finishRun();
+        RecipeJsonLinesWriter.compact(outputFile);
+    }
+
+    /**
+     * Incremental crawl. Detail pages already finished in the current run are skipped, known pages are
+     * requested conditionally, and a recipe is only re-extracted when its content hash changed.
+     * The crawl state is updated only after a recipe has been written, so a crash never marks
+     * unwritten recipes as done.
+     */
+    public static void crawlIncremental(String listingUrl, FetchEngine engine, HtmlCache cache,
+                                        CrawlState state, RecipeJsonLinesWriter writer) throws InterruptedException {
+        Map<String, FetchResult> pendingCommit = new ConcurrentHashMap<>();
+        CrawlPipeline pipeline = new CrawlPipeline(engine, 8, 64, MAX_LISTING_PAGES);
+        pipeline.setFetcher((url, listingPage) -> listingPage
+                ? fetchListingPage(url, engine, cache, state)
+                : fetchChangedDetailPage(url, engine, state, pendingCommit));
+        pipeline.run(listingUrl, RecipeDataExtractor::parseRecipeLinks,
+                     (link, page) -> {
+                         if (page.isNotModified()) {
+                             return null;
+                         }
+                         try {
+                             return extractRecipe(link[0], page);
+                         } catch (RuntimeException e) {
+                             pendingCommit.remove(link[1]); // retried by the next crawl
+                             throw e;
+                         }
+                     },
+                     (index, link, recipe) -> {
+                         FetchResult page = pendingCommit.remove(link[1]);
+                         if (page == null) {
+                             return; // already written and committed
+                         }
+                         try {
+                             writer.write(recipe);
+                             state.markCompleted(link[1], Hashing.sha256(page.getBody()),
+                                                 page.getEtag(), page.getLastModified());
+                         } catch (IOException e) {
+                             throw new UncheckedIOException(e);
+                         }
+                     });
+    }
+
+    // Listing pages are always revisited to discover new recipes; a 304 is answered from the HTML cache.
+    private static FetchResult fetchListingPage(String url, FetchEngine engine, HtmlCache cache, CrawlState state)
+            throws IOException {
+        CrawlState.UrlState known = state.get(url);
+        String cached = known != null ? cache.get(url) : null;
+        FetchResult page;
+        if (cached != null) {
+            page = engine.fetch(url, known.getEtag(), known.getLastModified());
+            if (page.isNotModified()) {
+                return new FetchResult(url, 200, cached, page.getLatencyMillis(), known.getEtag(), known.getLastModified());
+            }
+        } else {
+            page = engine.fetch(url);
+        }
+        state.markCompleted(url, Hashing.sha256(page.getBody()), page.getEtag(), page.getLastModified());
+        return page;
+    }
+
+    // Returns a "not modified" result for pages that need no re-extraction.
+    private static FetchResult fetchChangedDetailPage(String url, FetchEngine engine, CrawlState state,
+                                                      Map<String, FetchResult> pendingCommit) throws IOException {
+        if (state.isCompletedThisRun(url)) {
+            return FetchResult.notModified(url);
+        }
+        CrawlState.UrlState known = state.get(url);
+        FetchResult page = known == null ? engine.fetch(url)
+                                         : engine.fetch(url, known.getEtag(), known.getLastModified());
+        if (page.isNotModified()) {
+            state.markCompleted(url, null, null, null);
+            return page;
+        }
+        String hash = Hashing.sha256(page.getBody());
+        if (known != null && hash.equals(known.getContentHash())) {
+            state.markCompleted(url, hash, page.getEtag(), page.getLastModified());
+            return FetchResult.notModified(url);
+        }
+        pendingCommit.put(url, page);
+        return page;
+    }
+
+    /**
+     * Re-runs link discovery and recipe extraction purely from cached HTML.
+     * Detail pages are parsed in parallel on all cores; the result keeps discovery order.
+     */
+    public static ArrayNode replayFromCache(HtmlCache cache, String listingUrl) throws IOException {
+        List<String[]> recipeLinks = new ArrayList<>();
+        for (int i = 1; i <= MAX_LISTING_PAGES; i++) {
+            String url = listingUrl + i;
+            String html = cache.get(url);
+            if (html == null) {
+                continue;
+            }
+            List<String[]> pageLinks = parseRecipeLinks(Jsoup.parse(html, url));
+            if (pageLinks.isEmpty()) {
+                break;
+            }
+            recipeLinks.addAll(pageLinks);
+        }
+
+        List<ObjectNode> extracted = recipeLinks.parallelStream()
+                .map(link -> {
+                    try {
+                        String html = cache.get(link[1]);
+                        if (html == null) {
+                            System.err.println("Not in cache, skipping: " + link[1]);
+                            return null;
+                        }
+                        return extractRecipe(link[0], new FetchResult(link[1], 200, html, 0));
+                    } catch (IOException e) {
+                        System.err.println("Error reading cached page for " + link[0] + ": " + e.getMessage());
+                        return null;
+                    }
+                })
+                .collect(Collectors.toList());
+
+        ArrayNode recipesArray = JsonNodeFactory.instance.arrayNode();
+        for (ObjectNode recipe : extracted) {
+            if (recipe != null) {
+                recipesArray.add(recipe);
             }
         }
         return recipesArray;
     }
+
+    public static List<String[]> parseRecipeLinks(Document doc) {
+        List<String[]> recipeLinks = new ArrayList<>();
+        Elements recipes = doc.select("h2.entry-title.ast-blog-single-element a");
+
+        for (Element recipe : recipes) {
+            String name = recipe.text();
+            String link = recipe.absUrl("href");
+            recipeLinks.add(new String[]{name, link});
+            System.out.println("Found recipe: " + name + " | " + link);
+        }
+        return recipeLinks;
+    }
+    
+    public static ObjectNode extractRecipe(String recipeName, FetchResult result) {
+        Document doc = Jsoup.parse(result.getBody(), result.getUrl());
+        ObjectNode recipeJson = JsonNodeFactory.instance.objectNode();
+        recipeJson.put("name", recipeName);
+        recipeJson.put("url", result.getUrl());
+
+        ArrayNode ingredientsJsonArray = extractIngredients(doc);
+        ArrayNode instructionsJsonArray = extractInstructions(doc);
+
+        recipeJson.set("ingredients", ingredientsJsonArray);
+        recipeJson.set("instructions", instructionsJsonArray);
+        System.out.println("Successfully extracted data for recipe: " + recipeName
+                           + " (" + result.getLatencyMillis() + " ms)");
+        return recipeJson;
+    }
     
-    public static JsonArray extractIngredients(Document doc) {
-        JsonArray ingredientsJsonArray = new JsonArray();
+    public static ArrayNode extractIngredients(Document doc) {
+        ArrayNode ingredientsJsonArray = JsonNodeFactory.instance.arrayNode();
         System.out.println("Extracting ingredients...");
         Element ingredientsSection = doc.selectFirst("div.tasty-recipes-ingredients");
         
@@ -100,14 +281,14 @@ public class RecipeDataExtractor {
                 }
                 ingredientName = ingredientName.replaceAll("\\s+", " ").trim();
                 
-                JsonObject ingredientJson = new JsonObject();
+                ObjectNode ingredientJson = JsonNodeFactory.instance.objectNode();
                 try {
-                    ingredientJson.addProperty("amount", Double.parseDouble(amount));
+                    ingredientJson.put("amount", Double.parseDouble(amount));
                 } catch (NumberFormatException e) {
-                    ingredientJson.addProperty("amount", amount);
+                    ingredientJson.put("amount", amount);
                 }
-                ingredientJson.addProperty("unit", unit);
-                ingredientJson.addProperty("ingredient", ingredientName);
+                ingredientJson.put("unit", unit);
+                ingredientJson.put("ingredient", ingredientName);
                 
                 ingredientsJsonArray.add(ingredientJson);
                 System.out.println("Found ingredient: " + ingredientName + " (" + amount + " " + unit + ")");
@@ -118,8 +299,8 @@ public class RecipeDataExtractor {
         return ingredientsJsonArray;
     }
     
-    public static JsonArray extractInstructions(Document doc) {
-        JsonArray instructionsJsonArray = new JsonArray();
+    public static ArrayNode extractInstructions(Document doc) {
+        ArrayNode instructionsJsonArray = JsonNodeFactory.instance.arrayNode();
         System.out.println("Extracting instructions...");
         Element instructionsSection = doc.selectFirst("div.tasty-recipes-instructions");
         
@@ -137,11 +318,10 @@ public class RecipeDataExtractor {
         return instructionsJsonArray;
     }
     
-    public static void saveToJson(String filename, JsonArray recipesArray) {
+    public static void saveToJson(String filename, ArrayNode recipesArray) {
         System.out.println("Saving data to " + filename);
         try (FileWriter writer = new FileWriter(filename)) {
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            gson.toJson(recipesArray, writer);
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(writer, recipesArray);
         } catch (IOException e) {
             System.err.println("Error while saving to JSON: " + e.getMessage());
             e.printStackTrace();
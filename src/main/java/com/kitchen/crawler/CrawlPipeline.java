@@ -0,0 +1,197 @@
+package com.kitchen.crawler;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Producer/consumer crawl: one thread walks the listing pages and feeds recipe links into a
+ * bounded queue while detail workers fetch and extract recipes from it at the same time.
+ *
+ * Pagination stops at the first listing page without recipe entries (or a 404). A recipe URL listed more
+ * than once (e.g. on two listing pages) is queued only the first time. Failures are isolated to the page or
+ * recipe they happened on.
+ */
+public class CrawlPipeline {
+
+    /** Receives every extracted recipe together with its discovery index. */
+    public interface RecipeSink<T> {
+        void accept(int index, String[] link, T recipe);
+    }
+
+    /** Turns a fetched detail page into a recipe (or {@code null} to skip it); may throw to mark it failed. */
+    public interface DetailExtractor<T> {
+        T extract(String[] link, FetchResult page) throws Exception;
+    }
+
+    /** Fetches a listing or detail page; lets callers add caching or conditional requests. */
+    public interface PageFetcher {
+        FetchResult fetch(String url, boolean listingPage) throws IOException;
+    }
+
+    private static final QueuedLink POISON = new QueuedLink(-1, null);
+
+    private static class QueuedLink {
+        final int index;
+        final String[] link;
+
+        QueuedLink(int index, String[] link) {
+            this.index = index;
+            this.link = link;
+        }
+    }
+
+    private final FetchEngine engine;
+    private final int detailWorkers;
+    private final int queueCapacity;
+    private final int maxPages;
+    private PageFetcher fetcher;
+
+    private final AtomicInteger discovered = new AtomicInteger();
+    private final AtomicInteger extracted = new AtomicInteger();
+    private final AtomicInteger failedPages = new AtomicInteger();
+    private final AtomicInteger failedRecipes = new AtomicInteger();
+
+    /**
+     * @param engine        Engine used for both listing and detail fetches.
+     * @param detailWorkers Number of threads draining the link queue.
+     * @param queueCapacity Bound of the link queue; the listing walker blocks when it is full.
+     * @param maxPages      Hard upper limit on listing pages, even if they keep returning results.
+     */
+    public CrawlPipeline(FetchEngine engine, int detailWorkers, int queueCapacity, int maxPages) {
+        this.engine = engine;
+        this.detailWorkers = detailWorkers;
+        this.queueCapacity = queueCapacity;
+        this.maxPages = maxPages;
+        this.fetcher = (url, listingPage) -> engine.fetch(url);
+    }
+
+    /**
+     * Replaces the default fetcher (a plain {@link FetchEngine#fetch(String)}).
+     */
+    public void setFetcher(PageFetcher fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Runs the crawl to completion.
+     *
+     * @param listingBaseUrl Listing URL prefix; the page number is appended to it.
+     * @param linkParser     Extracts {name, url} pairs from a listing page.
+     * @param extractor      Builds a recipe from a fetched detail page.
+     * @param sink           Called from worker threads for every successfully extracted recipe.
+     */
+    public <T> void run(String listingBaseUrl, Function<Document, List<String[]>> linkParser,
+                        DetailExtractor<T> extractor, RecipeSink<T> sink) throws InterruptedException {
+        BlockingQueue<QueuedLink> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Set<String> queuedUrls = new HashSet<>();
+        CountDownLatch done = new CountDownLatch(detailWorkers);
+
+        for (int w = 0; w < detailWorkers; w++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (true) {
+                        QueuedLink item = queue.take();
+                        if (item == POISON) {
+                            break;
+                        }
+                        fetchDetail(item.index, item.link, extractor, sink);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "detail-worker-" + (w + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        try {
+            for (int page = 1; page <= maxPages; page++) {
+                String url = listingBaseUrl + page;
+                System.out.println("Processing page: " + page);
+                List<String[]> links;
+                try {
+                    FetchResult result = fetcher.fetch(url, true);
+                    links = linkParser.apply(Jsoup.parse(result.getBody(), url));
+                } catch (HttpStatusException e) {
+                    if (e.getStatusCode() == 404) {
+                        System.out.println("Listing page " + page + " not found, stopping pagination.");
+                        break;
+                    }
+                    failedPages.incrementAndGet();
+                    System.err.println("Error on listing page " + page + ": " + e.getMessage());
+                    continue;
+                } catch (IOException e) {
+                    failedPages.incrementAndGet();
+                    System.err.println("Error on listing page " + page + ": " + e.getMessage());
+                    continue;
+                }
+                if (links.isEmpty()) {
+                    System.out.println("Listing page " + page + " has no recipes, stopping pagination.");
+                    break;
+                }
+                for (String[] link : links) {
+                    if (queuedUrls.add(link[1])) {
+                        queue.put(new QueuedLink(discovered.getAndIncrement(), link));
+                    }
+                }
+            }
+        } finally {
+            // Every worker must get its pill, also when this thread was interrupted (put would throw at once).
+            boolean interrupted = Thread.interrupted();
+            if (interrupted) {
+                queue.clear(); // links not started yet are dropped
+            }
+            for (int w = 0; w < detailWorkers; w++) {
+                while (true) {
+                    try {
+                        queue.put(POISON);
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        done.await();
+        System.out.println("Crawl finished: " + discovered.get() + " recipes discovered, " + extracted.get()
+                           + " extracted, " + failedRecipes.get() + " failed, " + failedPages.get()
+                           + " listing pages failed.");
+    }
+
+    private <T> void fetchDetail(int index, String[] link, DetailExtractor<T> extractor, RecipeSink<T> sink) {
+        try {
+            T recipe = extractor.extract(link, fetcher.fetch(link[1], false));
+            if (recipe != null) {
+                sink.accept(index, link, recipe);
+                extracted.incrementAndGet();
+            }
+        } catch (Exception e) {
+            failedRecipes.incrementAndGet();
+            System.err.println("Error processing " + link[0] + ": " + e.getMessage());
+        }
+    }
+
+    public int getDiscoveredCount() {
+        return discovered.get();
+    }
+
+    public int getExtractedCount() {
+        return extracted.get();
+    }
+}
@@ -0,0 +1,139 @@
+package com.kitchen.crawler;
+
+import com.kitchen.util.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent crawl bookkeeping: per-URL content hash and HTTP validators, plus the URLs already
+ * finished in the current run so an interrupted crawl can resume instead of starting over.
+ *
+ * The state is saved atomically (write to a temp file, then rename) every {@code saveEvery} updates
+ * and whenever a run starts or finishes.
+ */
+public class CrawlState {
+
+    public static class UrlState {
+        String contentHash;
+        String etag;
+        String lastModified;
+        long lastCrawled;
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    // --- Persisted fields ---
+    private Map<String, UrlState> urls = new HashMap<>();
+    private Set<String> completedThisRun = new HashSet<>();
+    private boolean runInProgress;
+
+    private transient Path file;
+    private transient int unsavedUpdates;
+    private transient int saveEvery = 20;
+
+    /**
+     * Loads the state from {@code file}, or returns an empty state if the file does not exist yet.
+     */
+    public static CrawlState load(Path file) throws IOException {
+        CrawlState state = null;
+        if (Files.exists(file)) {
+            if (Files.size(file) > 0) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    state = Json.FIELDS.readValue(in, CrawlState.class);
+                }
+            }
+        }
+        if (state == null) {
+            state = new CrawlState();
+        }
+        state.file = file;
+        return state;
+    }
+
+    /**
+     * Starts a run. If the previous run did not finish, it is resumed and its completed URLs are kept.
+     *
+     * @return {@code true} if an interrupted run is being resumed.
+     */
+    public synchronized boolean beginRun() throws IOException {
+        boolean resuming = runInProgress;
+        if (!resuming) {
+            completedThisRun.clear();
+            runInProgress = true;
+        }
+        save();
+        return resuming;
+    }
+
+    public synchronized void finishRun() throws IOException {
+        runInProgress = false;
+        completedThisRun.clear();
+        save();
+    }
+
+    public synchronized UrlState get(String url) {
+        return urls.get(url);
+    }
+
+    public synchronized boolean isCompletedThisRun(String url) {
+        return completedThisRun.contains(url);
+    }
+
+    /**
+     * Records the latest hash and validators for the URL and marks it done for this run.
+     */
+    public synchronized void markCompleted(String url, String contentHash, String etag, String lastModified)
+            throws IOException {
+        UrlState entry = urls.get(url);
+        if (entry == null) {
+            entry = new UrlState();
+            urls.put(url, entry);
+        }
+        if (contentHash != null) {
+            entry.contentHash = contentHash;
+        }
+        if (etag != null) {
+            entry.etag = etag;
+        }
+        if (lastModified != null) {
+            entry.lastModified = lastModified;
+        }
+        entry.lastCrawled = System.currentTimeMillis();
+        completedThisRun.add(url);
+        if (++unsavedUpdates >= saveEvery) {
+            save();
+        }
+    }
+
+    public synchronized int size() {
+        return urls.size();
+    }
+
+    public synchronized void save() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            Json.FIELDS.writerWithDefaultPrettyPrinter().writeValue(out, this);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        unsavedUpdates = 0;
+    }
+}
@@ -0,0 +1,185 @@
+package com.kitchen.crawler;
+
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent page fetcher used by the crawler.
+ * Requests run on a bounded worker pool, are throttled per host by a {@link TokenBucketRateLimiter}
+ * and retried with exponential backoff on timeouts, 429 and 5xx responses.
+ */
+public class FetchEngine implements AutoCloseable {
+
+    private static final String USER_AGENT = "Mozilla/5.0";
+
+    private final ExecutorService workers;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final FetchStats stats = new FetchStats();
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final int timeoutMillis;
+    private volatile HtmlCache cache;
+
+    /**
+     * @param threads           Number of concurrent fetch workers.
+     * @param rateLimiter       Per-host limiter applied before every attempt (including retries).
+     * @param maxRetries        How many times a failed fetch is retried before giving up.
+     * @param baseBackoffMillis Delay before the first retry; doubled on every further attempt.
+     * @param timeoutMillis     Connect/read timeout for a single attempt.
+     */
+    public FetchEngine(int threads, TokenBucketRateLimiter rateLimiter, int maxRetries,
+                       long baseBackoffMillis, int timeoutMillis) {
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "fetch-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.rateLimiter = rateLimiter;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Engine with the defaults used for the recipe site: 8 workers, 2 requests/s per host
+     * (burst of 4), 3 retries starting at 500 ms and a 10 s timeout.
+     */
+    public static FetchEngine withDefaults() {
+        return new FetchEngine(8, new TokenBucketRateLimiter(2.0, 4), 3, 500, 10000);
+    }
+
+    /**
+     * Stores every successfully fetched body in the given cache (pass {@code null} to stop caching).
+     */
+    public void setCache(HtmlCache cache) {
+        this.cache = cache;
+    }
+
+    public FetchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Fetches the URL on one of the worker threads.
+     */
+    public CompletableFuture<FetchResult> fetchAsync(String url) {
+        CompletableFuture<FetchResult> future = new CompletableFuture<>();
+        workers.execute(() -> {
+            try {
+                future.complete(fetch(url));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Fetches the URL on the calling thread, applying rate limiting and retries.
+     *
+     * @throws IOException If every attempt failed or the server answered with a non-retryable error.
+     */
+    public FetchResult fetch(String url) throws IOException {
+        return fetch(url, null, null);
+    }
+
+    /**
+     * Conditional fetch: sends {@code If-None-Match}/{@code If-Modified-Since} when validators are given.
+     * A {@code 304} answer is returned as a result with {@link FetchResult#isNotModified()} set.
+     */
+    public FetchResult fetch(String url, String etag, String lastModified) throws IOException {
+        IOException lastError = null;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (attempt > 0) {
+                stats.recordRetry();
+                sleepBackoff(attempt);
+            }
+            try {
+                rateLimiter.acquire(url);
+                long start = System.nanoTime();
+                Connection connection = Jsoup.connect(url)
+                        .userAgent(USER_AGENT)
+                        .timeout(timeoutMillis)
+                        .ignoreHttpErrors(true);
+                if (etag != null) {
+                    connection.header("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    connection.header("If-Modified-Since", lastModified);
+                }
+                Connection.Response response = connection.execute();
+                long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                int status = response.statusCode();
+                if (status == 429 || status >= 500) {
+                    lastError = new HttpStatusException("Retryable HTTP error", status, url);
+                    continue;
+                }
+                if (status >= 400) {
+                    stats.recordFailure();
+                    throw new HttpStatusException("HTTP error fetching URL", status, url);
+                }
+                if (status == 304) {
+                    stats.recordSuccess(url, latencyMillis, 0);
+                    return new FetchResult(url, status, null, latencyMillis, etag, lastModified);
+                }
+                String body = response.body();
+                stats.recordSuccess(url, latencyMillis, body.length());
+                storeInCache(url, body);
+                return new FetchResult(url, status, body, latencyMillis,
+                                       response.header("ETag"), response.header("Last-Modified"));
+            } catch (HttpStatusException e) {
+                throw e;
+            } catch (IOException e) {
+                lastError = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while fetching " + url, e);
+            }
+        }
+        stats.recordFailure();
+        throw lastError;
+    }
+
+    private void storeInCache(String url, String body) {
+        HtmlCache target = cache;
+        if (target == null) {
+            return;
+        }
+        try {
+            target.put(url, body);
+        } catch (IOException e) {
+            System.err.println("Warning: could not cache " + url + ": " + e.getMessage());
+        }
+    }
+
+    private void sleepBackoff(int attempt) throws IOException {
+        long delay = baseBackoffMillis << (attempt - 1);
+        delay += ThreadLocalRandom.current().nextLong(baseBackoffMillis / 2 + 1); // jitter
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during retry backoff", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
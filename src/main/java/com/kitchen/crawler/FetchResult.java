@@ -0,0 +1,61 @@
+package com.kitchen.crawler;
+
+/**
+ * Raw outcome of fetching a single URL.
+ * A {@code 304 Not Modified} answer to a conditional request has a {@code null} body.
+ */
+public class FetchResult {
+
+    private final String url;
+    private final int statusCode;
+    private final String body;
+    private final long latencyMillis;
+    private final String etag;
+    private final String lastModified;
+
+    public FetchResult(String url, int statusCode, String body, long latencyMillis) {
+        this(url, statusCode, body, latencyMillis, null, null);
+    }
+
+    public FetchResult(String url, int statusCode, String body, long latencyMillis,
+                       String etag, String lastModified) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.body = body;
+        this.latencyMillis = latencyMillis;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    public static FetchResult notModified(String url) {
+        return new FetchResult(url, 304, null, 0);
+    }
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,75 @@
+package com.kitchen.crawler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe collector of per-URL fetch latency and overall crawl throughput.
+ */
+public class FetchStats {
+
+    private final Map<String, Long> latencyByUrl = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    void recordSuccess(String url, long latencyMillis, int bodyLength) {
+        latencyByUrl.put(url, latencyMillis);
+        bytes.addAndGet(bodyLength);
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    public Long getLatencyMillis(String url) {
+        return latencyByUrl.get(url);
+    }
+
+    public int getFetchedCount() {
+        return latencyByUrl.size();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public double getPagesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return seconds > 0 ? latencyByUrl.size() / seconds : 0;
+    }
+
+    /**
+     * Prints a one-block summary of latency percentiles and throughput.
+     */
+    public void printSummary() {
+        List<Long> latencies = new ArrayList<>(latencyByUrl.values());
+        Collections.sort(latencies);
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        System.out.println("------------------------------------------");
+        System.out.println("Fetched pages: " + latencies.size() + " | failures: " + failures.get()
+                           + " | retries: " + retries.get());
+        if (!latencies.isEmpty()) {
+            System.out.printf("Latency ms: p50=%d p95=%d max=%d%n",
+                              percentile(latencies, 0.50), percentile(latencies, 0.95),
+                              latencies.get(latencies.size() - 1));
+        }
+        System.out.printf("Throughput: %.2f pages/s, %.1f KB/s over %.1f s%n",
+                          getPagesPerSecond(), seconds > 0 ? bytes.get() / 1024.0 / seconds : 0, seconds);
+        System.out.println("------------------------------------------");
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,125 @@
+package com.kitchen.crawler;
+
+import com.kitchen.util.Hashing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed, gzip-compressed on-disk store of raw HTML responses.
+ *
+ * Layout: {@code objects/<first two hex chars>/<sha256 of body>.html.gz} holds each distinct page body
+ * once, and {@code index.tsv} maps URLs to body hashes ({@code url<TAB>hash}, later lines win).
+ */
+public class HtmlCache {
+
+    private static final String INDEX_FILE = "index.tsv";
+
+    private final Path root;
+    private final Map<String, String> hashByUrl = new ConcurrentHashMap<>();
+
+    public HtmlCache(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root.resolve("objects"));
+        Path index = root.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab > 0) {
+                        hashByUrl.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean contains(String url) {
+        return hashByUrl.containsKey(url);
+    }
+
+    public int size() {
+        return hashByUrl.size();
+    }
+
+    public Map<String, String> entries() {
+        return Collections.unmodifiableMap(hashByUrl);
+    }
+
+    /**
+     * Stores the body for the URL. Identical bodies are written only once.
+     *
+     * @return The content hash of the body.
+     */
+    public String put(String url, String html) throws IOException {
+        byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        String hash = Hashing.sha256(bytes);
+        Path object = objectPath(hash);
+        if (!Files.exists(object)) {
+            Files.createDirectories(object.getParent());
+            Path tmp = Files.createTempFile(object.getParent(), hash, ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                out.write(bytes);
+            }
+            Files.move(tmp, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (!hash.equals(hashByUrl.put(url, hash))) {
+            appendIndex(url, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * @return The cached body for the URL, or {@code null} if it was never stored.
+     */
+    public String get(String url) throws IOException {
+        String hash = hashByUrl.get(url);
+        if (hash == null) {
+            return null;
+        }
+        Path object = objectPath(hash);
+        if (!Files.exists(object)) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(object))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public String getHash(String url) {
+        return hashByUrl.get(url);
+    }
+
+    private Path objectPath(String hash) {
+        return root.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash + ".html.gz");
+    }
+
+    private synchronized void appendIndex(String url, String hash) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(root.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(url + "\t" + hash);
+            writer.newLine();
+        }
+    }
+}
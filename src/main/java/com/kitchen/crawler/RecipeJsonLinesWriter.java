@@ -0,0 +1,121 @@
+package com.kitchen.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends recipes to a JSON Lines file (one compact JSON object per line) as soon as they are extracted.
+ * The writer is flushed every {@code flushEvery} records and at least every {@code flushIntervalMillis},
+ * so a crash loses at most the last few recipes. Safe to call from several crawler threads.
+ */
+public class RecipeJsonLinesWriter implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BufferedWriter writer;
+    private final int flushEvery;
+    private final long flushIntervalMillis;
+
+    private int unflushed;
+    private long lastFlush = System.currentTimeMillis();
+    private int written;
+
+    /**
+     * @param file                Output file; created if missing.
+     * @param append              Whether to keep existing lines instead of truncating the file.
+     * @param flushEvery          Flush after this many records.
+     * @param flushIntervalMillis Flush if this much time passed since the last flush.
+     */
+    public RecipeJsonLinesWriter(Path file, boolean append, int flushEvery, long flushIntervalMillis) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8));
+        this.flushEvery = flushEvery;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public RecipeJsonLinesWriter(Path file) throws IOException {
+        this(file, false, 10, 5000);
+    }
+
+    public synchronized void write(ObjectNode recipe) throws IOException {
+        writer.write(MAPPER.writeValueAsString(recipe));
+        writer.newLine();
+        written++;
+        unflushed++;
+        long now = System.currentTimeMillis();
+        if (unflushed >= flushEvery || now - lastFlush >= flushIntervalMillis) {
+            writer.flush();
+            unflushed = 0;
+            lastFlush = now;
+        }
+    }
+
+    public synchronized int getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Rewrites a recipe file as JSON Lines with one line per recipe URL, keeping the last version of
+     * each recipe at the position it first appeared. Accepts a JSON array as input as well, so a legacy
+     * file is converted on first use. The file is replaced atomically.
+     */
+    public static void compact(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Map<String, ObjectNode> byUrl = new LinkedHashMap<>();
+        List<ObjectNode> withoutUrl = new ArrayList<>();
+        try (JsonParser parser = MAPPER.getFactory().createParser(file.toFile())) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a recipe object in " + file + " at " + parser.getTokenLocation());
+                }
+                ObjectNode recipe = MAPPER.readTree(parser);
+                JsonNode url = recipe.get("url");
+                if (url == null || url.isNull()) {
+                    withoutUrl.add(recipe);
+                } else {
+                    byUrl.put(url.asText(), recipe);
+                }
+                token = parser.nextToken();
+            }
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (RecipeJsonLinesWriter writer = new RecipeJsonLinesWriter(tmp, false, Integer.MAX_VALUE, Long.MAX_VALUE)) {
+            for (ObjectNode recipe : byUrl.values()) {
+                writer.write(recipe);
+            }
+            for (ObjectNode recipe : withoutUrl) {
+                writer.write(recipe);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
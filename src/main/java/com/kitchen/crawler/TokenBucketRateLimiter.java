@@ -0,0 +1,71 @@
+package com.kitchen.crawler;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-host token bucket rate limiter.
+ * Each host gets its own bucket that refills at a fixed rate up to a burst capacity,
+ * so workers fetching from different hosts never block each other.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double permitsPerSecond;
+    private final double burstCapacity;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond Sustained number of requests allowed per host per second.
+     * @param burstCapacity    Maximum number of requests that may be issued back to back.
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burstCapacity) {
+        if (permitsPerSecond <= 0 || burstCapacity < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be > 0 and burstCapacity >= 1");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burstCapacity = burstCapacity;
+    }
+
+    /**
+     * Blocks until a request to the host of the given URL is allowed.
+     *
+     * @param url The URL about to be fetched.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void acquire(String url) throws InterruptedException {
+        Bucket bucket = buckets.computeIfAbsent(hostOf(url), h -> new Bucket());
+        long waitNanos = bucket.reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    // --- One bucket per host ---
+    private class Bucket {
+        private double tokens = burstCapacity;
+        private long lastRefill = System.nanoTime();
+
+        // Takes one token, going into debt if none is left, and returns how long the caller must wait.
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burstCapacity, tokens + (now - lastRefill) * permitsPerSecond / 1_000_000_000.0);
+            lastRefill = now;
+            tokens -= 1;
+            if (tokens >= 0) {
+                return 0;
+            }
+            return (long) (-tokens / permitsPerSecond * 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.kitchen.customNER;
+
+import com.kitchen.model.InputRecipe;
+import com.kitchen.model.processing.RecipeProcessor;
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Speed-versus-accuracy sweep over feature configurations of {@code recipe_ner.prop}.
+ *
+ * The training file is split into a training and a held-out part (every {@code k}-th sentence is held out).
+ * Each variant overrides a few properties of the base file and is trained on the training part; variants
+ * are trained in parallel, one single-threaded training per core. Every model is then measured after
+ * training has finished: per-entity F1 on the held-out part, model load time through {@link RecipeProcessor},
+ * and tokens per second of {@link RecipeProcessor#processRecipe} over the held-out sentences.
+ *
+ * The result is printed as a table sorted by speed, with the overall F1 and one F1 column per entity type, so a
+ * variant that is fast and good overall but poor on one type stands out. Pareto-optimal variants (no other variant
+ * is both at least as fast and at least as accurate overall) are marked, and the fastest variant whose overall F1
+ * meets {@code --min-f1} is named; the bar does not apply to the per-type columns.
+ *
+ * Usage: {@code FeatureSweep [propsFile] [--parallel N] [--holdout-every K] [--rounds N] [--min-f1 X]
+ * [--variant name:key=value,key=value]...}
+ */
+public class FeatureSweep {
+
+    /** A named set of property overrides on top of the base properties. */
+    public static class Variant {
+        final String name;
+        final Map<String, String> overrides;
+
+        Variant(String name, Map<String, String> overrides) {
+            this.name = name;
+            this.overrides = overrides;
+        }
+
+        /** Parses {@code name:key=value,key=value}. */
+        static Variant parse(String spec) {
+            int colon = spec.indexOf(':');
+            String name = colon < 0 ? spec : spec.substring(0, colon);
+            Map<String, String> overrides = new LinkedHashMap<>();
+            if (colon >= 0) {
+                for (String pair : spec.substring(colon + 1).split(",")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) {
+                        overrides.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+                    }
+                }
+            }
+            return new Variant(name, overrides);
+        }
+    }
+
+    /** Measurements of one variant. */
+    public static class VariantResult {
+        final Variant variant;
+        NERTrainer.TrainingResult training;
+        NEREvaluator.Result evaluation;
+        double tokensPerSecond;
+        long loadMillis;
+        boolean pareto;
+
+        VariantResult(Variant variant) {
+            this.variant = variant;
+        }
+
+        double f1() {
+            return evaluation.overall.f1();
+        }
+    }
+
+    /** Single-flag ablations of the features the production model uses. */
+    public static List<Variant> defaultVariants() {
+        List<Variant> variants = new ArrayList<>();
+        variants.add(Variant.parse("baseline"));
+        variants.add(Variant.parse("ngram4:maxNGramLeng=4"));
+        variants.add(Variant.parse("ngram2:maxNGramLeng=2"));
+        variants.add(Variant.parse("no-ngrams:useNGrams=false"));
+        variants.add(Variant.parse("no-disjunctive:useDisjunctive=false"));
+        variants.add(Variant.parse("no-typeseqs2:useTypeSeqs2=false"));
+        variants.add(Variant.parse("no-typeyseqs:useTypeySequences=false"));
+        variants.add(Variant.parse("no-prevseqs:usePrevSequences=false"));
+        variants.add(Variant.parse("lean:maxNGramLeng=4,useDisjunctive=false,useTypeSeqs2=false"));
+        return variants;
+    }
+
+    /**
+     * Trains every variant on {@code trainFile}, {@code parallel} at a time.
+     */
+    static void trainAll(Properties base, Path trainFile, List<VariantResult> results, Path modelDir,
+                         int parallel, int featureCountThreshold) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(parallel, results.size())));
+        try {
+            List<Future<NERTrainer.TrainingResult>> futures = new ArrayList<>();
+            for (VariantResult result : results) {
+                Properties props = new Properties();
+                props.putAll(base);
+                props.putAll(result.variant.overrides);
+                props.setProperty("trainFile", trainFile.toString());
+                Path model = modelDir.resolve(result.variant.name + ".ser.gz");
+                futures.add(workers.submit(() -> NERTrainer.train(props, 1, featureCountThreshold, model)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).training = futures.get(i).get();
+                System.out.printf("Trained %-16s %6.1f s, %d weights%n", results.get(i).variant.name,
+                        results.get(i).training.wallMillis / 1000.0, results.get(i).training.numWeights);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while training variants", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Training a variant failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Measures held-out F1, load time and processing speed of every trained variant. Timing passes are
+     * interleaved across variants so JIT warm-up and machine noise don't favour whichever is measured last.
+     */
+    static void measureAll(List<VariantResult> results, List<List<CoreLabel>> heldOut, List<InputRecipe> heldOutRecipes,
+                           int heldOutTokens, int rounds) throws IOException, ClassNotFoundException {
+        List<RecipeProcessor> processors = new ArrayList<>();
+        for (VariantResult result : results) {
+            Path model = result.training.modelFile;
+            CRFClassifier<CoreLabel> classifier = CRFClassifier.getClassifier(model.toFile());
+            result.evaluation = NEREvaluator.evaluate(classifier, heldOut);
+
+            long start = System.nanoTime();
+            // No sentence cache: every timed round must tag, not look up the previous round's results.
+            RecipeProcessor processor = new RecipeProcessor(model.toString(), Runtime.getRuntime().availableProcessors(), 0);
+            result.loadMillis = (System.nanoTime() - start) / 1_000_000;
+            processors.add(processor);
+            for (InputRecipe recipe : heldOutRecipes) { // warm-up
+                processor.processRecipe(recipe);
+            }
+        }
+
+        long[] nanos = new long[results.size()];
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < processors.size(); i++) {
+                long start = System.nanoTime();
+                for (InputRecipe recipe : heldOutRecipes) {
+                    processors.get(i).processRecipe(recipe);
+                }
+                nanos[i] += System.nanoTime() - start;
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).tokensPerSecond = (double) heldOutTokens * rounds / (nanos[i] / 1e9);
+        }
+    }
+
+    static void markPareto(List<VariantResult> results) {
+        for (VariantResult a : results) {
+            a.pareto = true;
+            for (VariantResult b : results) {
+                if (b != a && b.f1() >= a.f1() && b.tokensPerSecond >= a.tokensPerSecond
+                        && (b.f1() > a.f1() || b.tokensPerSecond > a.tokensPerSecond)) {
+                    a.pareto = false;
+                    break;
+                }
+            }
+        }
+    }
+
+    // One single-instruction recipe per held-out sentence, so RecipeProcessor sees the same text.
+    private static List<InputRecipe> toRecipes(List<List<CoreLabel>> sentences) {
+        List<InputRecipe> recipes = new ArrayList<>();
+        for (List<CoreLabel> sentence : sentences) {
+            StringBuilder text = new StringBuilder();
+            for (CoreLabel token : sentence) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(token.word());
+            }
+            InputRecipe recipe = new InputRecipe();
+            recipe.setName("held-out " + recipes.size());
+            recipe.setInstructions(Collections.singletonList(text.toString()));
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+
+    private static int columnWidth(String type) {
+        return Math.max(7, type.length());
+    }
+
+    public static void main(String[] args) throws Exception {
+        String propsFile = NERTrainer.DEFAULT_PROPS;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        int holdoutEvery = 5;
+        int rounds = 5;
+        int featureCountThreshold = 2;
+        double minF1 = 0.9;
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--parallel".equals(args[i]) && i + 1 < args.length) {
+                parallel = Integer.parseInt(args[++i]);
+            } else if ("--holdout-every".equals(args[i]) && i + 1 < args.length) {
+                holdoutEvery = Math.max(2, Integer.parseInt(args[++i]));
+            } else if ("--rounds".equals(args[i]) && i + 1 < args.length) {
+                rounds = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--feature-count-threshold".equals(args[i]) && i + 1 < args.length) {
+                featureCountThreshold = Integer.parseInt(args[++i]);
+            } else if ("--min-f1".equals(args[i]) && i + 1 < args.length) {
+                minF1 = Double.parseDouble(args[++i]);
+            } else if ("--variant".equals(args[i]) && i + 1 < args.length) {
+                variants.add(Variant.parse(args[++i]));
+            } else {
+                propsFile = args[i];
+            }
+        }
+        if (variants.isEmpty()) {
+            variants = defaultVariants();
+        }
+
+        Properties base = NERTrainer.loadProperties(Paths.get(propsFile));
+        List<List<CoreLabel>> sentences = NEREvaluator.readConll(Paths.get(base.getProperty("trainFile")));
+        List<List<CoreLabel>> train = new ArrayList<>();
+        List<List<CoreLabel>> heldOut = new ArrayList<>();
+        NEREvaluator.splitHeldOut(sentences, holdoutEvery, train, heldOut);
+        int heldOutTokens = 0;
+        for (List<CoreLabel> sentence : heldOut) {
+            heldOutTokens += sentence.size();
+        }
+        System.out.println("Training on " + train.size() + " sentences, holding out " + heldOut.size()
+                + " (" + heldOutTokens + " tokens); " + variants.size() + " variants, " + parallel + " at a time.");
+
+        Path workDir = Files.createTempDirectory("feature-sweep");
+        Path trainFile = workDir.resolve("train.tsv");
+        NEREvaluator.writeConll(train, trainFile);
+
+        List<VariantResult> results = new ArrayList<>();
+        for (Variant variant : variants) {
+            results.add(new VariantResult(variant));
+        }
+        trainAll(base, trainFile, results, workDir, parallel, featureCountThreshold);
+
+        List<InputRecipe> heldOutRecipes = toRecipes(heldOut);
+        measureAll(results, heldOut, heldOutRecipes, heldOutTokens, rounds);
+        markPareto(results);
+        results.sort((a, b) -> Double.compare(b.tokensPerSecond, a.tokensPerSecond));
+
+        // Entity types in NEREvaluator's order; a type a variant has no counts for was neither in the gold data
+        // nor predicted, and is shown as "-".
+        Set<String> types = new TreeSet<>();
+        for (VariantResult r : results) {
+            types.addAll(r.evaluation.byType.keySet());
+        }
+
+        System.out.println("------------------------------------------");
+        StringBuilder header = new StringBuilder(String.format("%-2s %-16s %7s", "", "variant", "F1"));
+        for (String type : types) {
+            header.append(String.format(" %" + columnWidth(type) + "s", type));
+        }
+        header.append(String.format(" %10s %9s %9s %10s  %s", "tokens/s", "load ms", "model KB", "weights", "overrides"));
+        System.out.println(header);
+        VariantResult pick = null;
+        for (VariantResult r : results) {
+            StringBuilder row = new StringBuilder(String.format("%-2s %-16s %7.3f", r.pareto ? "*" : "",
+                    r.variant.name, r.f1()));
+            for (String type : types) {
+                NEREvaluator.Counts counts = r.evaluation.byType.get(type);
+                row.append(counts == null
+                        ? String.format(" %" + columnWidth(type) + "s", "-")
+                        : String.format(" %" + columnWidth(type) + ".3f", counts.f1()));
+            }
+            row.append(String.format(" %10.0f %9d %9.1f %10d  %s", r.tokensPerSecond, r.loadMillis,
+                    r.training.modelBytes / 1024.0, r.training.numWeights,
+                    r.variant.overrides.isEmpty() ? "-" : r.variant.overrides));
+            System.out.println(row);
+            if (pick == null && r.f1() >= minF1) {
+                pick = r;
+            }
+        }
+        System.out.println("------------------------------------------");
+        System.out.println("F1 is overall; the following columns are the F1 of each entity type.");
+        System.out.println("* = Pareto-optimal (no variant is both faster and more accurate overall)");
+        System.out.println(pick == null
+                ? "No variant reaches overall F1 " + minF1
+                : "Fastest variant with overall F1 >= " + minF1 + ": " + pick.variant.name);
+        System.out.println("Models kept in " + workDir);
+    }
+}
@@ -0,0 +1,160 @@
+package com.kitchen.customNER;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token-level trie over the ingredient gazetteer and the keyword sets, compiled once and then used to
+ * label whole sentences in a single left-to-right pass.
+ *
+ * Labels follow the rules of the original generator: a multi-word ingredient starting at the current
+ * token wins, otherwise the token alone is looked up as a single-word ingredient, then as an action,
+ * tool, time, temperature and quantity, in that order.
+ *
+ * When several multi-word ingredients start at the same token (e.g. "garam masala" and
+ * "garam masala powder"), {@link MatchPolicy#LIST_ORDER} picks the one that comes first in the
+ * ingredient list, exactly like the original nested loops, so the training file stays byte-identical.
+ * {@link MatchPolicy#LONGEST} picks the longest one instead.
+ */
+public class GazetteerMatcher {
+
+    public static final String OUTSIDE = "O";
+
+    public enum MatchPolicy { LIST_ORDER, LONGEST }
+
+    private static final class Node {
+        Map<String, Node> children;
+        int multiWordOrder = -1; // list index of the multi-word ingredient ending here, -1 if none
+        String singleLabel;      // label when this node is reached by exactly one token
+
+        Node child(String word) {
+            return children == null ? null : children.get(word);
+        }
+
+        Node childOrCreate(String word) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(word, w -> new Node());
+        }
+    }
+
+    private final Node root = new Node();
+    private final MatchPolicy policy;
+    private int multiWordCount;
+    private int singleWordCount;
+
+    public GazetteerMatcher(List<String> ingredientList) {
+        this(ingredientList, MatchPolicy.LIST_ORDER);
+    }
+
+    public GazetteerMatcher(List<String> ingredientList, MatchPolicy policy) {
+        this.policy = policy;
+        // Lowest priority first so higher priority sets overwrite single-token labels.
+        addKeywords(NERDataGenerator.QUANTITIES, "B-QUANTITY");
+        addKeywords(NERDataGenerator.TEMPERATURES, "B-TEMP");
+        addKeywords(NERDataGenerator.TIMES, "B-TIME");
+        addKeywords(NERDataGenerator.TOOLS, "B-TOOL");
+        addKeywords(NERDataGenerator.ACTIONS, "B-ACTION");
+
+        for (int index = 0; index < ingredientList.size(); index++) {
+            String ingredient = ingredientList.get(index);
+            if (ingredient.contains(" ")) {
+                Node node = root;
+                for (String word : ingredient.split("\\s+")) {
+                    node = node.childOrCreate(word);
+                }
+                if (node.multiWordOrder < 0) {
+                    node.multiWordOrder = index;
+                }
+                multiWordCount++;
+            } else {
+                root.childOrCreate(ingredient).singleLabel = "B-INGREDIENT";
+                singleWordCount++;
+            }
+        }
+    }
+
+    private void addKeywords(Collection<String> keywords, String label) {
+        for (String keyword : keywords) {
+            root.childOrCreate(keyword).singleLabel = label;
+        }
+    }
+
+    public int getMultiWordCount() {
+        return multiWordCount;
+    }
+
+    public int getSingleWordCount() {
+        return singleWordCount;
+    }
+
+    /**
+     * Labels one sentence.
+     *
+     * @param cleanedTokens Tokens reduced with {@link #clean(String)}.
+     * @param labels        Output array of the same length, filled with BIO labels.
+     */
+    public void label(String[] cleanedTokens, String[] labels) {
+        int n = cleanedTokens.length;
+        int i = 0;
+        while (i < n) {
+            int matchEnd = -1;
+            int matchOrder = Integer.MAX_VALUE;
+            Node node = root;
+            for (int j = i; j < n; j++) {
+                node = node.child(cleanedTokens[j]);
+                if (node == null) {
+                    break;
+                }
+                if (node.multiWordOrder >= 0
+                        && (policy == MatchPolicy.LONGEST || node.multiWordOrder < matchOrder)) {
+                    matchEnd = j;
+                    matchOrder = node.multiWordOrder;
+                }
+            }
+            if (matchEnd >= 0) {
+                labels[i] = "B-INGREDIENT";
+                for (int j = i + 1; j <= matchEnd; j++) {
+                    labels[j] = "I-INGREDIENT";
+                }
+                i = matchEnd + 1;
+            } else {
+                Node single = root.child(cleanedTokens[i]);
+                labels[i] = (single != null && single.singleLabel != null) ? single.singleLabel : OUTSIDE;
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Keeps only ASCII letters and lowercases them; the regex-free equivalent of
+     * {@code text.replaceAll("[^a-zA-Z]", "").toLowerCase()}.
+     */
+    public static String clean(String text) {
+        int length = text.length();
+        boolean unchanged = true;
+        for (int k = 0; k < length; k++) {
+            char c = text.charAt(k);
+            if (!(c >= 'a' && c <= 'z')) {
+                unchanged = false;
+                break;
+            }
+        }
+        if (unchanged) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (int k = 0; k < length; k++) {
+            char c = text.charAt(k);
+            if (c >= 'a' && c <= 'z') {
+                sb.append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                sb.append((char) (c + ('a' - 'A')));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,255 @@
+package com.kitchen.customNER;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the head word (last token) of each ingredient name that the gazetteer should also contain
+ * on its own: the last token of a multi-token ingredient, unless it is tagged as a preposition or verb.
+ *
+ * Unique ingredient strings are POS-tagged in large newline-separated batch documents (one ingredient
+ * per sentence), optionally on several threads, and the results are kept in a TSV cache
+ * ({@code ingredient<TAB>pos<TAB>lastWord}) so later runs skip tagging for strings seen before.
+ */
+public class IngredientHeadTagger {
+
+    private static final String CACHE_HEADER = "# pos.model=" + DefaultPaths.DEFAULT_POS_MODEL;
+    private static final int BATCH_SIZE = 500;
+
+    // pos is null when the ingredient has a single token (it then contributes no head word)
+    private static final class TagResult {
+        final String pos;
+        final String lastWord;
+
+        TagResult(String pos, String lastWord) {
+            this.pos = pos;
+            this.lastWord = lastWord;
+        }
+
+        String headWord() {
+            if (pos == null || pos.equals("IN") || pos.equals("TO") || pos.startsWith("VB")) {
+                return null;
+            }
+            return lastWord.isEmpty() ? null : lastWord;
+        }
+    }
+
+    private final Path cacheFile;
+    private final int threads;
+    private final Map<String, TagResult> cache = new HashMap<>();
+    private int cacheHits;
+    private int tagged;
+
+    /**
+     * @param cacheFile TSV cache location, or {@code null} to tag everything every time.
+     * @param threads   Number of tagging threads (each gets its own pipeline).
+     */
+    public IngredientHeadTagger(Path cacheFile, int threads) throws IOException {
+        this.cacheFile = cacheFile;
+        this.threads = Math.max(1, threads);
+        if (cacheFile != null && Files.exists(cacheFile)) {
+            loadCache();
+        }
+    }
+
+    /**
+     * @param ingredients Unique normalized ingredient strings (lowercase letters and whitespace).
+     * @return Head words to add to the gazetteer, keyed by ingredient; ingredients without one are absent.
+     */
+    public Map<String, String> headWords(Collection<String> ingredients) throws IOException {
+        List<String> batchable = new ArrayList<>();
+        List<String> single = new ArrayList<>();
+        for (String ingredient : ingredients) {
+            if (cache.containsKey(ingredient)) {
+                cacheHits++;
+            } else if (isBatchable(ingredient)) {
+                batchable.add(ingredient);
+            } else {
+                single.add(ingredient);
+            }
+        }
+
+        Map<String, TagResult> fresh = new HashMap<>();
+        tagBatches(batchable, fresh);
+        if (!single.isEmpty()) {
+            StanfordCoreNLP pipeline = newPipeline(false);
+            for (String ingredient : single) {
+                fresh.put(ingredient, tagAlone(ingredient, pipeline));
+            }
+        }
+        tagged = fresh.size();
+        cache.putAll(fresh);
+        appendToCache(fresh);
+
+        Map<String, String> heads = new HashMap<>();
+        for (String ingredient : ingredients) {
+            String head = cache.get(ingredient).headWord();
+            if (head != null) {
+                heads.put(ingredient, head);
+            }
+        }
+        return heads;
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getTaggedCount() {
+        return tagged;
+    }
+
+    // Only single-space separated words can be joined into one line per ingredient without
+    // changing how they tokenize; anything else is tagged on its own as before.
+    private static boolean isBatchable(String ingredient) {
+        for (int i = 0; i < ingredient.length(); i++) {
+            char c = ingredient.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && c != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void tagBatches(List<String> ingredients, Map<String, TagResult> out) throws IOException {
+        if (ingredients.isEmpty()) {
+            return;
+        }
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < ingredients.size(); i += BATCH_SIZE) {
+            batches.add(ingredients.subList(i, Math.min(ingredients.size(), i + BATCH_SIZE)));
+        }
+        int workerCount = Math.min(threads, batches.size());
+        ThreadLocal<StanfordCoreNLP> pipelines = ThreadLocal.withInitial(() -> newPipeline(true));
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        try {
+            List<Future<Map<String, TagResult>>> results = new ArrayList<>();
+            for (List<String> batch : batches) {
+                results.add(workers.submit(() -> tagBatch(batch, pipelines.get())));
+            }
+            for (Future<Map<String, TagResult>> result : results) {
+                out.putAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while tagging ingredients", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to tag ingredients", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static Map<String, TagResult> tagBatch(List<String> batch, StanfordCoreNLP pipeline) {
+        Annotation document = new Annotation(String.join("\n", batch));
+        pipeline.annotate(document);
+        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        if (sentences.size() != batch.size()) {
+            throw new IllegalStateException("Expected " + batch.size() + " sentences but got " + sentences.size());
+        }
+        Map<String, TagResult> results = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            results.put(batch.get(i), toResult(sentences.get(i).get(CoreAnnotations.TokensAnnotation.class)));
+        }
+        return results;
+    }
+
+    private static TagResult tagAlone(String ingredient, StanfordCoreNLP pipeline) {
+        Annotation annotation = new Annotation(ingredient);
+        pipeline.annotate(annotation);
+        List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+        if (sentences == null || sentences.isEmpty()) {
+            return new TagResult(null, "");
+        }
+        return toResult(sentences.get(0).get(CoreAnnotations.TokensAnnotation.class));
+    }
+
+    private static TagResult toResult(List<CoreLabel> tokens) {
+        if (tokens == null || tokens.size() <= 1) {
+            return new TagResult(null, "");
+        }
+        CoreLabel lastToken = tokens.get(tokens.size() - 1);
+        String lastWord = lastToken.originalText().toLowerCase().trim().replaceAll("[^a-z]", "");
+        return new TagResult(lastToken.get(CoreAnnotations.PartOfSpeechAnnotation.class), lastWord);
+    }
+
+    private static StanfordCoreNLP newPipeline(boolean oneSentencePerLine) {
+        Properties props = new Properties();
+        props.setProperty("annotators", "tokenize,ssplit,pos");
+        if (oneSentencePerLine) {
+            props.setProperty("ssplit.eolonly", "true");
+        }
+        return new StanfordCoreNLP(props);
+    }
+
+    // --- TSV cache ---
+
+    private void loadCache() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (!CACHE_HEADER.equals(header)) {
+                System.out.println("Ingredient POS cache was built with a different tagger, ignoring it.");
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 3) {
+                    cache.put(fields[0], new TagResult(fields[1].isEmpty() ? null : fields[1], fields[2]));
+                }
+            }
+        }
+    }
+
+    private void appendToCache(Map<String, TagResult> fresh) throws IOException {
+        if (cacheFile == null || fresh.isEmpty()) {
+            return;
+        }
+        boolean rewrite = !Files.exists(cacheFile) || !CACHE_HEADER.equals(readHeader());
+        try (BufferedWriter writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                rewrite ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND)) {
+            if (rewrite) {
+                writer.write(CACHE_HEADER);
+                writer.newLine();
+            }
+            Map<String, TagResult> toWrite = rewrite ? cache : fresh;
+            for (Map.Entry<String, TagResult> entry : toWrite.entrySet()) {
+                if (!isBatchable(entry.getKey())) {
+                    continue; // keeps the TSV free of tabs and newlines
+                }
+                TagResult result = entry.getValue();
+                writer.write(entry.getKey() + "\t" + (result.pos == null ? "" : result.pos) + "\t" + result.lastWord);
+                writer.newLine();
+            }
+        }
+    }
+
+    private String readHeader() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            return reader.readLine();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.kitchen.customNER;
+
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.sequences.SeqClassifierFlags;
+import edu.stanford.nlp.util.HashIndex;
+import edu.stanford.nlp.util.Index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Post-training compression of a serialized CRF model.
+ *
+ * A feature is dropped when the spread (max - min) of its weights over all label assignments is below a
+ * threshold. A feature with identical weights for every label adds the same amount to every label of a clique,
+ * so it can never change the best tag sequence and dropping it is exact. With a threshold above 0 the remaining
+ * pruned features shift label scores by small but different amounts and can change the Viterbi path, so pruning
+ * them is an approximation whose accuracy cost is the before/after held-out F1 this tool reports. Character
+ * n-gram features ({@code #...#}) get their own, usually higher, threshold, and n-grams longer than a given
+ * length can be dropped altogether, collapsing onto the shorter prefixes and suffixes that fire far more often.
+ *
+ * The model is rewritten object by object in the layout {@link CRFClassifier#serializeClassifier(ObjectOutputStream)}
+ * uses, with only the feature index and weight matrix replaced, so it loads with the regular
+ * {@code CRFClassifier.getClassifier}. Load time and retained heap of both models are then reported.
+ *
+ * The production model was trained on the whole training file, so its F1 there only measures memorisation. The
+ * accuracy cost of pruning is measured the way {@link FeatureSweep} does it instead: the training file named in
+ * {@code --props} is split (every {@code k}-th sentence held out), a model is trained on the rest, compressed with
+ * the same thresholds, and both are scored on the held-out sentences. {@code --eval} skips that training and
+ * scores the given model and its compressed copy on a CoNLL file they were not trained on.
+ *
+ * Usage: {@code ModelCompressor [--model in] [--output out] [--threshold T] [--ngram-threshold T]
+ * [--max-ngram-length N] [--props propsFile] [--holdout-every K] [--threads N] [--eval conllFile]}
+ */
+public class ModelCompressor {
+
+    public static final String DEFAULT_MODEL = "src/main/resources/ner-model.ser.gz";
+    public static final String DEFAULT_OUTPUT = "ner-model.compact.ser.gz";
+
+    /** Pruning thresholds. */
+    public static class PruneOptions {
+        public double threshold = 0.05;
+        public double ngramThreshold = 0.2;
+        /** N-gram features longer than this (in characters, without the # markers) are dropped; 0 keeps all. */
+        public int maxNGramLength = 0;
+    }
+
+    /** What was removed. */
+    public static class PruneStats {
+        public int featuresBefore;
+        public int featuresAfter;
+        public int ngramsBefore;
+        public int ngramsAfter;
+        public long bytesBefore;
+        public long bytesAfter;
+    }
+
+    /** Load cost and accuracy of one model. */
+    public static class ModelReport {
+        public long loadMillis;
+        public long retainedBytes;
+        public NEREvaluator.Result evaluation;
+    }
+
+    /**
+     * Writes a pruned copy of {@code model} to {@code output}.
+     */
+    @SuppressWarnings("unchecked")
+    public static PruneStats compress(Path model, Path output, PruneOptions options)
+            throws IOException, ClassNotFoundException {
+        PruneStats stats = new PruneStats();
+        stats.bytesBefore = Files.size(model);
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(model))));
+             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(output))))) {
+            Object labelIndices = in.readObject();
+            Object classIndex = in.readObject();
+            Index<String> featureIndex = (Index<String>) in.readObject();
+            SeqClassifierFlags flags = (SeqClassifierFlags) in.readObject();
+            Object embeddings = flags.useEmbedding ? in.readObject() : null;
+            Object factoryCount = in.readObject();
+            if (!(factoryCount instanceof Integer)) {
+                throw new IOException("Unsupported model layout (feature factories not stored as a counted list): " + model);
+            }
+            List<Object> factories = new ArrayList<>();
+            for (int i = 0; i < (Integer) factoryCount; i++) {
+                factories.add(in.readObject());
+            }
+            int windowSize = in.readInt();
+            float[][] weights = toFloat(in.readObject());
+            Object knownLCWords = in.readObject();
+            Object labelDictionary = flags.labelDictionaryCutoff > 0 ? in.readObject() : null;
+
+            Index<String> keptFeatures = new HashIndex<>();
+            List<float[]> keptWeights = new ArrayList<>();
+            for (int i = 0; i < weights.length; i++) {
+                String feature = featureIndex.get(i);
+                int ngramLength = ngramLength(feature);
+                if (ngramLength >= 0) {
+                    stats.ngramsBefore++;
+                }
+                if (keep(weights[i], ngramLength, options)) {
+                    keptFeatures.add(feature);
+                    keptWeights.add(weights[i]);
+                    if (ngramLength >= 0) {
+                        stats.ngramsAfter++;
+                    }
+                }
+            }
+            stats.featuresBefore = weights.length;
+            stats.featuresAfter = keptWeights.size();
+
+            out.writeObject(labelIndices);
+            out.writeObject(classIndex);
+            out.writeObject(keptFeatures);
+            out.writeObject(flags);
+            if (flags.useEmbedding) {
+                out.writeObject(embeddings);
+            }
+            out.writeObject(factories.size());
+            for (Object factory : factories) {
+                out.writeObject(factory);
+            }
+            out.writeInt(windowSize);
+            out.writeObject(keptWeights.toArray(new float[0][]));
+            out.writeObject(knownLCWords);
+            if (labelDictionary != null) {
+                out.writeObject(labelDictionary);
+            }
+        }
+        stats.bytesAfter = Files.size(output);
+        return stats;
+    }
+
+    private static boolean keep(float[] weights, int ngramLength, PruneOptions options) {
+        if (ngramLength >= 0 && options.maxNGramLength > 0 && ngramLength > options.maxNGramLength) {
+            return false;
+        }
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float w : weights) {
+            min = Math.min(min, w);
+            max = Math.max(max, w);
+        }
+        return max - min > (ngramLength >= 0 ? options.ngramThreshold : options.threshold);
+    }
+
+    // Character n-gram features look like "#ab#|C"; returns the n-gram length or -1 for other features.
+    static int ngramLength(String feature) {
+        if (feature.isEmpty() || feature.charAt(0) != '#') {
+            return -1;
+        }
+        int close = feature.indexOf('#', 1);
+        return close < 0 ? -1 : close - 1;
+    }
+
+    private static float[][] toFloat(Object weights) throws IOException {
+        if (weights instanceof float[][]) {
+            return (float[][]) weights;
+        }
+        if (weights instanceof double[][]) {
+            double[][] d = (double[][]) weights;
+            float[][] f = new float[d.length][];
+            for (int i = 0; i < d.length; i++) {
+                f[i] = new float[d[i].length];
+                for (int j = 0; j < d[i].length; j++) {
+                    f[i][j] = (float) d[i][j];
+                }
+            }
+            return f;
+        }
+        throw new IOException("Unexpected weight matrix type " + weights.getClass().getName());
+    }
+
+    /**
+     * Loads a model and measures load time, heap retained after a full GC, and F1 on {@code evalSentences}.
+     */
+    public static ModelReport measure(Path model, List<List<CoreLabel>> evalSentences)
+            throws IOException, ClassNotFoundException {
+        ModelReport report = new ModelReport();
+        long heapBefore = usedHeapAfterGc();
+        long start = System.nanoTime();
+        CRFClassifier<CoreLabel> classifier = CRFClassifier.getClassifier(model.toFile());
+        report.loadMillis = (System.nanoTime() - start) / 1_000_000;
+        report.retainedBytes = usedHeapAfterGc() - heapBefore;
+        if (evalSentences != null) {
+            report.evaluation = NEREvaluator.evaluate(classifier, evalSentences);
+        }
+        return report;
+    }
+
+    static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path model = Paths.get(DEFAULT_MODEL);
+        Path output = Paths.get(DEFAULT_OUTPUT);
+        Path evalFile = null;
+        String propsFile = NERTrainer.DEFAULT_PROPS;
+        int holdoutEvery = 5;
+        int threads = Runtime.getRuntime().availableProcessors();
+        PruneOptions options = new PruneOptions();
+        for (int i = 0; i < args.length; i++) {
+            if ("--model".equals(args[i]) && i + 1 < args.length) {
+                model = Paths.get(args[++i]);
+            } else if ("--output".equals(args[i]) && i + 1 < args.length) {
+                output = Paths.get(args[++i]);
+            } else if ("--threshold".equals(args[i]) && i + 1 < args.length) {
+                options.threshold = Double.parseDouble(args[++i]);
+            } else if ("--ngram-threshold".equals(args[i]) && i + 1 < args.length) {
+                options.ngramThreshold = Double.parseDouble(args[++i]);
+            } else if ("--max-ngram-length".equals(args[i]) && i + 1 < args.length) {
+                options.maxNGramLength = Integer.parseInt(args[++i]);
+            } else if ("--props".equals(args[i]) && i + 1 < args.length) {
+                propsFile = args[++i];
+            } else if ("--holdout-every".equals(args[i]) && i + 1 < args.length) {
+                holdoutEvery = Math.max(2, Integer.parseInt(args[++i]));
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--eval".equals(args[i]) && i + 1 < args.length) {
+                evalFile = Paths.get(args[++i]);
+            } else {
+                System.err.println("Unknown argument: " + args[i]);
+                return;
+            }
+        }
+
+        PruneStats stats = compress(model, output, options);
+        System.out.println("Wrote " + output);
+
+        // The models scored for F1: the given ones on an unseen file, or a pair trained without the held-out part.
+        Path evalModel = model;
+        Path evalOutput = output;
+        List<List<CoreLabel>> evalSentences;
+        String evalLabel;
+        if (evalFile != null) {
+            evalSentences = NEREvaluator.readConll(evalFile);
+            evalLabel = evalFile.getFileName().toString();
+        } else {
+            Properties props = NERTrainer.loadProperties(Paths.get(propsFile));
+            List<List<CoreLabel>> train = new ArrayList<>();
+            evalSentences = new ArrayList<>();
+            NEREvaluator.splitHeldOut(NEREvaluator.readConll(Paths.get(props.getProperty("trainFile"))),
+                    holdoutEvery, train, evalSentences);
+            evalLabel = "held-out";
+            System.out.println("Training on " + train.size() + " sentences to score pruning on "
+                    + evalSentences.size() + " held-out ones.");
+            Path workDir = Files.createTempDirectory("model-compressor");
+            Path trainFile = workDir.resolve("train.tsv");
+            NEREvaluator.writeConll(train, trainFile);
+            props.setProperty("trainFile", trainFile.toString());
+            evalModel = NERTrainer.train(props, threads, 2, workDir.resolve("held-out.ser.gz")).modelFile;
+            evalOutput = workDir.resolve("held-out.compact.ser.gz");
+            compress(evalModel, evalOutput, options);
+        }
+
+        // Load and tag once up front so class loading and JIT warm-up aren't charged to the first model measured.
+        CRFClassifier<CoreLabel> warmUp = CRFClassifier.getClassifier(evalModel.toFile());
+        NEREvaluator.evaluate(warmUp, evalSentences);
+        warmUp = null;
+        ModelReport before = measure(model, null);
+        ModelReport after = measure(output, null);
+        NEREvaluator.Result evalBefore = NEREvaluator.evaluate(CRFClassifier.getClassifier(evalModel.toFile()), evalSentences);
+        NEREvaluator.Result evalAfter = NEREvaluator.evaluate(CRFClassifier.getClassifier(evalOutput.toFile()), evalSentences);
+
+        System.out.println("------------------------------------------");
+        System.out.printf("%-22s %12s %12s%n", "", "original", "compressed");
+        System.out.printf("%-22s %12d %12d%n", "Features", stats.featuresBefore, stats.featuresAfter);
+        System.out.printf("%-22s %12d %12d%n", "  of which n-grams", stats.ngramsBefore, stats.ngramsAfter);
+        System.out.printf("%-22s %12.1f %12.1f%n", "File size (KB)", stats.bytesBefore / 1024.0, stats.bytesAfter / 1024.0);
+        System.out.printf("%-22s %12d %12d%n", "Load time (ms)", before.loadMillis, after.loadMillis);
+        System.out.printf("%-22s %12.1f %12.1f%n", "Retained heap (MB)",
+                before.retainedBytes / (1024.0 * 1024), after.retainedBytes / (1024.0 * 1024));
+        System.out.printf("%-22s %12.3f %12.3f%n", "F1 (" + evalLabel + ")",
+                evalBefore.overall.f1(), evalAfter.overall.f1());
+        System.out.printf("%-22s %12.0f %12.0f%n", "Tokens/s", evalBefore.tokensPerSecond(), evalAfter.tokensPerSecond());
+        System.out.println("------------------------------------------");
+        evalBefore.print("Original");
+        evalAfter.print("Compressed");
+        System.out.println("------------------------------------------");
+    }
+}
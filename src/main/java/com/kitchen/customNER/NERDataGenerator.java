@@ -1,18 +1,30 @@
 package com.kitchen.customNER;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.kitchen.util.Hashing;
+import com.kitchen.util.Json;
 import edu.stanford.nlp.pipeline.*;
 import edu.stanford.nlp.ling.*;
 import edu.stanford.nlp.util.CoreMap;
 
 import java.io.BufferedWriter;
-import java.io.FileReader;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Reader;
-import java.lang.reflect.Type;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class NERDataGenerator {
 
@@ -29,6 +41,9 @@ public class NERDataGenerator {
         List<String> instructions;
     }
     
+    static final String POS_CACHE_FILENAME = "ingredient_pos_cache.tsv";
+    static final String SHARD_DIRNAME = "ner_shards";
+
     static final Set<String> ACTIONS = new HashSet<>(Arrays.asList(
             "chop", "stir", "sauté", "boil", "mix", "heat", "cook", "add", "grind", "fry",
             "bake", "blend", "whisk", "roast", "pour", "serve", "simmer", "knead", "soak",
@@ -54,11 +69,22 @@ public class NERDataGenerator {
             "gram", "grams", "ml", "liter", "pinch", "handful", "quart", "pint", "ounce", "ounces"
     ));
     
+    // Accepts either a JSON array of recipes or JSON Lines (one recipe object per line).
     public static List<Recipe> loadRecipes(String filename) {
-        try (Reader reader = new FileReader(filename)) {
-            Gson gson = new Gson();
-            Type recipeListType = new TypeToken<List<Recipe>>() {}.getType();
-            return gson.fromJson(reader, recipeListType);
+        try (JsonParser parser = Json.FIELDS.getFactory().createParser(new File(filename))) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                return new ArrayList<>();
+            }
+            if (first == JsonToken.START_ARRAY) {
+                return Json.FIELDS.readValue(parser, new TypeReference<List<Recipe>>() {});
+            }
+            List<Recipe> recipes = new ArrayList<>();
+            MappingIterator<Recipe> it = Json.FIELDS.readerFor(Recipe.class).readValues(parser);
+            while (it.hasNextValue()) {
+                recipes.add(it.nextValue());
+            }
+            return recipes;
         } catch (IOException e) {
             e.printStackTrace();
             return Collections.emptyList();
@@ -66,12 +92,18 @@ public class NERDataGenerator {
     }
     
     public static List<String> buildGlobalIngredientList(List<Recipe> recipes) {
-        Set<String> ingredientSet = new HashSet<>();
-        // Pipeline for tokenizing ingredients (tokenize, ssplit, pos)
-        Properties props = new Properties();
-        props.setProperty("annotators", "tokenize,ssplit,pos");
-        StanfordCoreNLP ingredientPipeline = new StanfordCoreNLP(props);
-        
+        try {
+            return buildGlobalIngredientList(recipes, new IngredientHeadTagger(null, 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Normalized ingredient strings are deduplicated first, so each distinct string is POS-tagged at most once
+    // (and not at all if the tagger's cache already knows it).
+    public static List<String> buildGlobalIngredientList(List<Recipe> recipes, IngredientHeadTagger tagger)
+            throws IOException {
+        Set<String> uniqueIngredients = new LinkedHashSet<>();
         for (Recipe recipe : recipes) {
             if (recipe.ingredients != null) {
                 for (Ingredient ing : recipe.ingredients) {
@@ -79,43 +111,34 @@ public class NERDataGenerator {
                     String fullIngredient = ing.ingredient.toLowerCase().trim();
                     fullIngredient = fullIngredient.replaceAll("[^a-z\\s]", "").trim();
                     if (!fullIngredient.isEmpty()) {
-                        ingredientSet.add(fullIngredient);
-                        
-                        // Tokenize the full ingredient text using CoreNLP
-                        Annotation annotation = new Annotation(fullIngredient);
-                        ingredientPipeline.annotate(annotation);
-                        List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
-                        if (sentences != null && !sentences.isEmpty()) {
-                            List<CoreLabel> tokens = sentences.get(0).get(CoreAnnotations.TokensAnnotation.class);
-                            if (tokens != null && !tokens.isEmpty() && tokens.size() > 1) {
-                                // Get the last token.
-                                CoreLabel lastToken = tokens.get(tokens.size() - 1);
-                                String pos = lastToken.get(CoreAnnotations.PartOfSpeechAnnotation.class);
-                                // Skip if it's a preposition (IN, TO) or any verb (starting with VB)
-                                if (!pos.equals("IN") && !pos.equals("TO") && !pos.startsWith("VB")) {
-                                    String lastWord = lastToken.originalText().toLowerCase().trim();
-                                    lastWord = lastWord.replaceAll("[^a-z]", "");
-                                    if (!lastWord.isEmpty()) {
-                                        ingredientSet.add(lastWord);
-                                    }
-                                }
-                            }
-                        }
+                        uniqueIngredients.add(fullIngredient);
                     }
                 }
             }
         }
+
+        Set<String> ingredientSet = new HashSet<>(uniqueIngredients);
+        // Add the last word of multi-word ingredients unless it is a preposition or verb.
+        ingredientSet.addAll(tagger.headWords(uniqueIngredients).values());
+        System.out.println("Tagged " + tagger.getTaggedCount() + " distinct ingredient strings ("
+                           + tagger.getCacheHits() + " served from cache).");
         return new ArrayList<>(ingredientSet);
     }
     
     // ----------------------
     // Annotate instructions using Stanford CoreNLP.
-    // For each token, first check for multi-word ingredient matches from the global ingredient list.
-    // Then, if no ingredient match is found (label remains "O"), check the token against additional keyword sets
-    // to tag actions, tools, times, temperatures, and quantities.
+    // Each sentence is labelled in one pass by a GazetteerMatcher compiled from the global ingredient list
+    // and the keyword sets: multi-word ingredients first, then single-word ingredients, then actions, tools,
+    // times, temperatures and quantities. Where several multi-word ingredients start at the same token, the
+    // default LIST_ORDER policy takes the one listed first; LONGEST (--longest-match) takes the longest.
     // ----------------------
     public static void annotateInstructions(List<String> instructions, List<String> ingredientList,
                                             BufferedWriter bw, StanfordCoreNLP pipeline) throws IOException {
+        annotateInstructions(instructions, new GazetteerMatcher(ingredientList), bw, pipeline);
+    }
+
+    public static void annotateInstructions(List<String> instructions, GazetteerMatcher matcher,
+                                            BufferedWriter bw, StanfordCoreNLP pipeline) throws IOException {
         for (String instruction : instructions) {
             Annotation document = new Annotation(instruction);
             pipeline.annotate(document);
@@ -124,107 +147,182 @@ public class NERDataGenerator {
             
             for (CoreMap sentence : sentences) {
                 List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
-                for (int i = 0; i < tokens.size(); i++) {
-                    CoreLabel token = tokens.get(i);
-                    String tokenText = token.originalText();
-                    // Clean the token text for matching.
-                    String cleanedToken = tokenText.replaceAll("[^a-zA-Z]", "").toLowerCase();
-                    String label = "O"; // Default
-                    
-                    boolean multiWordMatched = false;
-                    
-                    // First, check for multi-word ingredients in the global ingredient list.
-                    for (String ingredient : ingredientList) {
-                        if (ingredient.contains(" ")) {
-                            String[] ingredientWords = ingredient.split("\\s+");
-                            if (i <= tokens.size() - ingredientWords.length) {
-                                boolean match = true;
-                                for (int j = 0; j < ingredientWords.length; j++) {
-                                    String wordToMatch = tokens.get(i + j).originalText()
-                                            .replaceAll("[^a-zA-Z]", "").toLowerCase();
-                                    if (!wordToMatch.equals(ingredientWords[j])) {
-                                        match = false;
-                                        break;
-                                    }
-                                }
-                                if (match) {
-                                    for (int j = 0; j < ingredientWords.length; j++) {
-                                        String outToken = tokens.get(i + j).originalText();
-                                        String nerLabel = (j == 0) ? "B-INGREDIENT" : "I-INGREDIENT";
-                                        bw.write(outToken + " " + nerLabel + "\n");
-                                    }
-                                    i += ingredientWords.length - 1;
-                                    multiWordMatched = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    
-                    // If no multi-word ingredient match, check for single-word ingredient.
-                    if (!multiWordMatched) {
-                        for (String ingredient : ingredientList) {
-                            if (!ingredient.contains(" ")) {  // single-word ingredient
-                                if (cleanedToken.equals(ingredient)) {
-                                    label = "B-INGREDIENT";
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        // If still "O", check additional keyword sets.
-                        if (label.equals("O")) {
-                            if (ACTIONS.contains(cleanedToken)) {
-                                label = "B-ACTION";
-                            } else if (TOOLS.contains(cleanedToken)) {
-                                label = "B-TOOL";
-                            } else if (TIMES.contains(cleanedToken)) {
-                                label = "B-TIME";
-                            } else if (TEMPERATURES.contains(cleanedToken)) {
-                                label = "B-TEMP";
-                            } else if (QUANTITIES.contains(cleanedToken)) {
-                                label = "B-QUANTITY";
-                            }
-                        }
-                        
-                        bw.write(tokenText + " " + label + "\n");
-                    }
+                String[] cleanedTokens = new String[tokens.size()];
+                for (int i = 0; i < cleanedTokens.length; i++) {
+                    cleanedTokens[i] = GazetteerMatcher.clean(tokens.get(i).originalText());
+                }
+                String[] labels = new String[cleanedTokens.length];
+                matcher.label(cleanedTokens, labels);
+                for (int i = 0; i < labels.length; i++) {
+                    bw.write(tokens.get(i).originalText());
+                    bw.write(' ');
+                    bw.write(labels[i]);
+                    bw.write('\n');
                 }
                 bw.write("\n"); // Sentence separator
             }
         }
     }
     
+    static StanfordCoreNLP newInstructionPipeline() {
+        Properties props = new Properties();
+        props.setProperty("annotators", "tokenize,ssplit");
+        return new StanfordCoreNLP(props);
+    }
+
+    // Annotates one recipe into its block of the training file (header, sentences, blank separator line).
+    public static String annotateRecipe(Recipe recipe, GazetteerMatcher matcher, StanfordCoreNLP pipeline)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        try (BufferedWriter bw = new BufferedWriter(out)) {
+            bw.write("# Recipe: " + recipe.name + "\n");
+            if (recipe.instructions != null) {
+                annotateInstructions(recipe.instructions, matcher, bw, pipeline);
+            }
+            bw.write("\n"); // Separate recipes.
+        }
+        return out.toString();
+    }
+
+    public static void writeTrainingDataSerial(List<Recipe> recipes, GazetteerMatcher matcher, Writer out)
+            throws IOException {
+        StanfordCoreNLP pipeline = newInstructionPipeline();
+        for (Recipe recipe : recipes) {
+            System.out.println("Processing recipe: " + recipe.name);
+            out.write(annotateRecipe(recipe, matcher, pipeline));
+        }
+    }
+
+    /** Receives annotated recipe blocks in recipe order. */
+    public interface BlockSink {
+        void accept(int index, String block) throws IOException;
+    }
+
+    /**
+     * Annotates recipes on a pool of workers, each with its own CoreNLP pipeline, and writes the
+     * blocks in the original recipe order so the output is identical to the serial path.
+     */
+    public static void writeTrainingDataParallel(List<Recipe> recipes, GazetteerMatcher matcher, int threads,
+                                                 Writer out) throws IOException {
+        annotateRecipes(recipes, matcher, threads, (index, block) -> out.write(block));
+    }
+
+    public static void annotateRecipes(List<Recipe> recipes, GazetteerMatcher matcher, int threads,
+                                       BlockSink sink) throws IOException {
+        ThreadLocal<StanfordCoreNLP> pipelines = ThreadLocal.withInitial(NERDataGenerator::newInstructionPipeline);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> blocks = new ArrayList<>(recipes.size());
+            for (Recipe recipe : recipes) {
+                blocks.add(workers.submit(() -> annotateRecipe(recipe, matcher, pipelines.get())));
+            }
+            for (int i = 0; i < blocks.size(); i++) {
+                System.out.println("Processing recipe: " + recipes.get(i).name);
+                sink.accept(i, blocks.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while annotating recipes", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to annotate recipe", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Hash of everything besides the recipe text that the annotation depends on: the gazetteer in list
+     * order (order matters for {@link GazetteerMatcher.MatchPolicy#LIST_ORDER}), the keyword sets and the policy.
+     */
+    public static String gazetteerHash(List<String> ingredientList, GazetteerMatcher.MatchPolicy policy) {
+        StringBuilder sb = new StringBuilder(policy.name()).append('\n');
+        for (String ingredient : ingredientList) {
+            sb.append(ingredient).append('\n');
+        }
+        for (Set<String> keywords : Arrays.asList(ACTIONS, TOOLS, TIMES, TEMPERATURES, QUANTITIES)) {
+            sb.append("--\n");
+            for (String keyword : new TreeSet<>(keywords)) {
+                sb.append(keyword).append('\n');
+            }
+        }
+        return Hashing.sha256(sb.toString());
+    }
+
     // ----------------------
     // Main method
+    // Options: --threads N (default: all cores), --full (re-annotate every recipe instead of only changed ones),
+    // --compare-serial (implies --full; also time the serial path and report the speedup),
+    // --longest-match (see GazetteerMatcher.MatchPolicy).
     // ----------------------
     public static void main(String[] args) {
         // Adjust file paths as needed.
         String inputFilename = "complete_indian_recipes.json";
         String outputFilename = "ner_training_data.txt";
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean compareSerial = false;
+        boolean longestMatch = false;
+        boolean full = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--compare-serial".equals(args[i])) {
+                compareSerial = true;
+                full = true;
+            } else if ("--longest-match".equals(args[i])) {
+                longestMatch = true;
+            } else if ("--full".equals(args[i])) {
+                full = true;
+            }
+        }
         
         List<Recipe> recipes = loadRecipes(inputFilename);
         System.out.println("Loaded " + recipes.size() + " recipes.");
         
         // Build global ingredient list.
-        List<String> globalIngredientList = buildGlobalIngredientList(recipes);
+        List<String> globalIngredientList;
+        try {
+            IngredientHeadTagger tagger = new IngredientHeadTagger(Paths.get(POS_CACHE_FILENAME), threads);
+            globalIngredientList = buildGlobalIngredientList(recipes, tagger);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
         System.out.println("Global ingredient list size: " + globalIngredientList.size());
+        // --longest-match prefers "garam masala powder" over "garam masala"; the default keeps the
+        // original list-order tie-break so the output is byte-identical to earlier runs.
+        GazetteerMatcher.MatchPolicy policy = longestMatch
+                ? GazetteerMatcher.MatchPolicy.LONGEST : GazetteerMatcher.MatchPolicy.LIST_ORDER;
+        GazetteerMatcher matcher = new GazetteerMatcher(globalIngredientList, policy);
         
-        // Set up a CoreNLP pipeline for instructions (tokenize, ssplit).
-        Properties props = new Properties();
-        props.setProperty("annotators", "tokenize,ssplit");
-        StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
-        
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilename))) {
-            for (Recipe recipe : recipes) {
-                System.out.println("Processing recipe: " + recipe.name);
-                bw.write("# Recipe: " + recipe.name + "\n");
-                if (recipe.instructions != null) {
-                    annotateInstructions(recipe.instructions, globalIngredientList, bw, pipeline);
-                }
-                bw.write("\n"); // Separate recipes.
+        try {
+            String serialOutput = null;
+            double serialSeconds = 0;
+            if (compareSerial) {
+                StringWriter serial = new StringWriter();
+                long start = System.nanoTime();
+                writeTrainingDataSerial(recipes, matcher, serial);
+                serialSeconds = (System.nanoTime() - start) / 1e9;
+                serialOutput = serial.toString();
+            }
+
+            // Per-recipe shards: only recipes whose text (or the gazetteer) changed are re-annotated.
+            long start = System.nanoTime();
+            TrainingDataShards shards = new TrainingDataShards(Paths.get(SHARD_DIRNAME));
+            int annotated = shards.update(recipes, matcher, gazetteerHash(globalIngredientList, policy), threads, full);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilename))) {
+                shards.concatenate(bw);
             }
             System.out.println("Annotated NER training data written to " + outputFilename);
+            System.out.printf("Re-annotated %d of %d recipes in %.2f s on %d thread(s): %.1f recipes/s%n",
+                              annotated, recipes.size(), seconds, threads, annotated / seconds);
+            if (serialOutput != null) {
+                // FileWriter encodes with the default charset, so compare encoded bytes.
+                boolean identical = Arrays.equals(serialOutput.getBytes(Charset.defaultCharset()),
+                                                  Files.readAllBytes(Paths.get(outputFilename)));
+                System.out.printf("Serial path: %.2f s (%.1f recipes/s), speedup %.2fx, output identical: %b%n",
+                                  serialSeconds, recipes.size() / serialSeconds, serialSeconds / seconds, identical);
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,199 @@
+package com.kitchen.customNER;
+
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Per-entity precision, recall and F1 of a CRF model on a two-column CoNLL file
+ * ({@code word<TAB or SPACE>tag}, blank line between sentences), the format of {@code ner_training_data.txt}.
+ *
+ * Entities are compared as exact spans: a predicted entity counts only if type, start and end all match.
+ * BIO sequences are decoded the same way {@code RecipeProcessor} does, so a stray I- tag starts a new entity.
+ */
+public class NEREvaluator {
+
+    /** True/false positive and false negative counts for one entity type (or all of them). */
+    public static class Counts {
+        public int truePositives;
+        public int falsePositives;
+        public int falseNegatives;
+
+        public double precision() {
+            int predicted = truePositives + falsePositives;
+            return predicted == 0 ? 0 : (double) truePositives / predicted;
+        }
+
+        public double recall() {
+            int gold = truePositives + falseNegatives;
+            return gold == 0 ? 0 : (double) truePositives / gold;
+        }
+
+        public double f1() {
+            double p = precision();
+            double r = recall();
+            return p + r == 0 ? 0 : 2 * p * r / (p + r);
+        }
+    }
+
+    /** Evaluation summary. */
+    public static class Result {
+        public final Map<String, Counts> byType = new TreeMap<>();
+        public final Counts overall = new Counts();
+        public int sentences;
+        public int tokens;
+        public long taggingNanos;
+
+        public double tokensPerSecond() {
+            return taggingNanos == 0 ? 0 : tokens / (taggingNanos / 1e9);
+        }
+
+        public void print(String title) {
+            System.out.println(title + ": " + sentences + " sentences, " + tokens + " tokens");
+            System.out.printf("  %-12s %9s %9s %9s%n", "entity", "precision", "recall", "F1");
+            for (Map.Entry<String, Counts> entry : byType.entrySet()) {
+                Counts c = entry.getValue();
+                System.out.printf("  %-12s %9.3f %9.3f %9.3f%n", entry.getKey(), c.precision(), c.recall(), c.f1());
+            }
+            System.out.printf("  %-12s %9.3f %9.3f %9.3f%n", "ALL", overall.precision(), overall.recall(), overall.f1());
+        }
+    }
+
+    /**
+     * Reads a CoNLL file into sentences; the gold tag of each token is stored as its
+     * {@link CoreAnnotations.GoldAnswerAnnotation}.
+     */
+    public static List<List<CoreLabel>> readConll(Path file) throws IOException {
+        List<List<CoreLabel>> sentences = new ArrayList<>();
+        List<CoreLabel> current = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty()) {
+                    if (!current.isEmpty()) {
+                        sentences.add(current);
+                        current = new ArrayList<>();
+                    }
+                    continue;
+                }
+                String[] fields = trimmed.split("\\s+");
+                CoreLabel token = new CoreLabel();
+                token.setWord(fields[0]);
+                token.setValue(fields[0]);
+                token.setOriginalText(fields[0]);
+                token.set(CoreAnnotations.GoldAnswerAnnotation.class,
+                        fields.length > 1 ? fields[fields.length - 1] : GazetteerMatcher.OUTSIDE);
+                current.add(token);
+            }
+        }
+        if (!current.isEmpty()) {
+            sentences.add(current);
+        }
+        return sentences;
+    }
+
+    /**
+     * Writes sentences read by {@link #readConll} back in the same format.
+     */
+    public static void writeConll(List<List<CoreLabel>> sentences, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (List<CoreLabel> sentence : sentences) {
+                for (CoreLabel token : sentence) {
+                    writer.write(token.word() + "\t" + token.get(CoreAnnotations.GoldAnswerAnnotation.class));
+                    writer.newLine();
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Splits sentences into a training and a held-out part: every {@code every}-th sentence is held out.
+     */
+    public static void splitHeldOut(List<List<CoreLabel>> sentences, int every,
+                                    List<List<CoreLabel>> train, List<List<CoreLabel>> heldOut) {
+        for (int i = 0; i < sentences.size(); i++) {
+            (i % every == every - 1 ? heldOut : train).add(sentences.get(i));
+        }
+    }
+
+    public static Result evaluate(CRFClassifier<CoreLabel> classifier, List<List<CoreLabel>> sentences) {
+        Result result = new Result();
+        List<String> gold = new ArrayList<>();
+        List<String> predicted = new ArrayList<>();
+        for (List<CoreLabel> sentence : sentences) {
+            long start = System.nanoTime();
+            List<CoreLabel> tagged = classifier.classifySentence(sentence);
+            result.taggingNanos += System.nanoTime() - start;
+            result.sentences++;
+            result.tokens += sentence.size();
+
+            gold.clear();
+            predicted.clear();
+            for (int i = 0; i < sentence.size(); i++) {
+                gold.add(sentence.get(i).get(CoreAnnotations.GoldAnswerAnnotation.class));
+                predicted.add(tagged.get(i).get(CoreAnnotations.AnswerAnnotation.class));
+            }
+            score(spans(gold), spans(predicted), result);
+        }
+        return result;
+    }
+
+    private static void score(Set<String> goldSpans, Set<String> predictedSpans, Result result) {
+        for (String span : predictedSpans) {
+            Counts counts = result.byType.computeIfAbsent(typeOf(span), t -> new Counts());
+            if (goldSpans.contains(span)) {
+                counts.truePositives++;
+                result.overall.truePositives++;
+            } else {
+                counts.falsePositives++;
+                result.overall.falsePositives++;
+            }
+        }
+        for (String span : goldSpans) {
+            if (!predictedSpans.contains(span)) {
+                result.byType.computeIfAbsent(typeOf(span), t -> new Counts()).falseNegatives++;
+                result.overall.falseNegatives++;
+            }
+        }
+    }
+
+    private static String typeOf(String span) {
+        return span.substring(0, span.indexOf(':'));
+    }
+
+    // Entities as "TYPE:start:end" (end exclusive).
+    static Set<String> spans(List<String> tags) {
+        Set<String> spans = new HashSet<>();
+        String type = null;
+        int start = -1;
+        for (int i = 0; i <= tags.size(); i++) {
+            String tag = i < tags.size() ? tags.get(i) : GazetteerMatcher.OUTSIDE;
+            boolean inside = tag != null && tag.startsWith("I-");
+            String tagType = tag != null && tag.length() > 2 ? tag.substring(2) : null;
+            if (type != null && !(inside && type.equals(tagType))) {
+                spans.add(type + ":" + start + ":" + i);
+                type = null;
+            }
+            if (type == null && tagType != null && (inside || tag.startsWith("B-"))) {
+                type = tagType;
+                start = i;
+            }
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,171 @@
+package com.kitchen.customNER;
+
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.optimization.DiffFunction;
+import edu.stanford.nlp.optimization.Evaluator;
+import edu.stanford.nlp.optimization.Minimizer;
+import edu.stanford.nlp.optimization.QNMinimizer;
+import edu.stanford.nlp.util.CallbackFunction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process training of the recipe CRF model, replacing the Stanford CLI run plus manual copying.
+ *
+ * Loads {@code recipe_ner.prop}, turns on multi-threaded gradient computation and a feature count
+ * threshold, trains, and publishes the serialized model atomically to every target location
+ * (by default {@code src/main/resources/ner-model.ser.gz} and {@code stanford-ner/ner-model.ser.gz}).
+ *
+ * Usage: {@code NERTrainer [propsFile] [--threads N] [--feature-count-threshold N] [--target path]...}
+ */
+public class NERTrainer {
+
+    public static final String DEFAULT_PROPS = "stanford-ner/recipe_ner.prop";
+    public static final String[] DEFAULT_TARGETS = {"src/main/resources/ner-model.ser.gz", "stanford-ner/ner-model.ser.gz"};
+
+    /** Training summary. */
+    public static class TrainingResult {
+        public final long wallMillis;
+        public final int iterations;
+        public final long modelBytes;
+        public final int numWeights;
+        public final Path modelFile;
+
+        TrainingResult(long wallMillis, int iterations, long modelBytes, int numWeights, Path modelFile) {
+            this.wallMillis = wallMillis;
+            this.iterations = iterations;
+            this.modelBytes = modelBytes;
+            this.numWeights = numWeights;
+            this.modelFile = modelFile;
+        }
+    }
+
+    // CRFClassifier that counts optimizer iterations through the QN minimizer's iteration callback.
+    static class IterationCountingCRFClassifier extends CRFClassifier<CoreLabel> {
+        final AtomicInteger iterations = new AtomicInteger();
+
+        IterationCountingCRFClassifier(Properties props) {
+            super(props);
+        }
+
+        @Override
+        public Minimizer<DiffFunction> getMinimizer(int featurePruneIteration, Evaluator[] evaluators) {
+            Minimizer<DiffFunction> minimizer = super.getMinimizer(featurePruneIteration, evaluators);
+            if (minimizer instanceof QNMinimizer) {
+                ((QNMinimizer) minimizer).setIterationCallbackFunction(new CallbackFunction() {
+                    @Override
+                    public void callback(Object... args) {
+                        iterations.incrementAndGet();
+                    }
+                });
+            }
+            return minimizer;
+        }
+    }
+
+    /**
+     * Loads a training properties file. A relative {@code trainFile} is resolved against the
+     * directory of the properties file, like the CLI run from inside {@code stanford-ner/}.
+     */
+    public static Properties loadProperties(Path propsFile) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(propsFile)) {
+            props.load(in);
+        }
+        String trainFile = props.getProperty("trainFile");
+        Path baseDir = propsFile.toAbsolutePath().getParent();
+        if (trainFile != null && !new File(trainFile).isAbsolute() && baseDir != null) {
+            props.setProperty("trainFile", baseDir.resolve(trainFile).toString());
+        }
+        return props;
+    }
+
+    /**
+     * Trains a model and serializes it to {@code output}.
+     *
+     * @param props                 Training properties; {@code serializeTo} is ignored.
+     * @param threads               Threads for gradient computation ({@code multiThreadGrad}).
+     * @param featureCountThreshold Features seen fewer times are dropped; used only if the properties don't set it.
+     */
+    public static TrainingResult train(Properties props, int threads, int featureCountThreshold, Path output)
+            throws IOException {
+        Properties effective = new Properties();
+        effective.putAll(props);
+        effective.remove("serializeTo");
+        effective.setProperty("multiThreadGrad", String.valueOf(threads));
+        if (!effective.containsKey("featureCountThreshold")) {
+            effective.setProperty("featureCountThreshold", String.valueOf(featureCountThreshold));
+        }
+
+        long start = System.nanoTime();
+        IterationCountingCRFClassifier crf = new IterationCountingCRFClassifier(effective);
+        crf.train();
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        crf.serializeClassifier(output.toString());
+        return new TrainingResult(wallMillis, crf.iterations.get(), Files.size(output), crf.getNumWeights(), output);
+    }
+
+    /**
+     * Copies the model next to each target and renames it into place, so readers never see a partial file.
+     */
+    public static void publish(Path model, List<Path> targets) throws IOException {
+        for (Path target : targets) {
+            Path dir = target.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(target.getFileName() + ".tmp");
+            Files.copy(model, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Published model to " + target);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String propsFile = DEFAULT_PROPS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int featureCountThreshold = 2;
+        List<Path> targets = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--feature-count-threshold".equals(args[i]) && i + 1 < args.length) {
+                featureCountThreshold = Integer.parseInt(args[++i]);
+            } else if ("--target".equals(args[i]) && i + 1 < args.length) {
+                targets.add(Paths.get(args[++i]));
+            } else {
+                propsFile = args[i];
+            }
+        }
+        if (targets.isEmpty()) {
+            for (String target : DEFAULT_TARGETS) {
+                targets.add(Paths.get(target));
+            }
+        }
+
+        Properties props = loadProperties(Paths.get(propsFile));
+        System.out.println("Training from " + props.getProperty("trainFile") + " with " + threads + " thread(s)...");
+        Path model = Files.createTempFile("ner-model", ".ser.gz");
+        try {
+            TrainingResult result = train(props, threads, featureCountThreshold, model);
+            System.out.println("------------------------------------------");
+            System.out.printf("Training wall time: %.1f s%n", result.wallMillis / 1000.0);
+            System.out.println("Optimizer iterations: " + result.iterations);
+            System.out.println("Weights: " + result.numWeights);
+            System.out.printf("Serialized model size: %.1f KB%n", result.modelBytes / 1024.0);
+            System.out.println("------------------------------------------");
+            publish(model, targets);
+        } finally {
+            Files.deleteIfExists(model);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.kitchen.customNER;
+
+import com.kitchen.util.Hashing;
+import com.kitchen.util.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Per-recipe shards of the NER training file, so only changed recipes are re-annotated.
+ *
+ * Each recipe's block is stored as {@code <content hash>.txt} in the shard directory, where the hash
+ * covers the recipe name and instructions. {@code manifest.json} records the gazetteer hash the shards
+ * were built with, the shard list of the last run and a checksum of each shard's content; when the gazetteer
+ * hash changes every shard is rebuilt. The training file is the concatenation of the shards in recipe order.
+ *
+ * Shards and the manifest are written to a temporary file and renamed into place. A shard is only reused if
+ * the manifest lists it and its content still matches the checksum, so a shard left behind by an interrupted
+ * run is annotated again rather than trusted.
+ */
+public class TrainingDataShards {
+
+    private static final String MANIFEST = "manifest.json";
+
+    static class Manifest {
+        String gazetteerHash;
+        List<String> recipeHashes = new ArrayList<>();
+        /** Recipe hash to the SHA-256 of its shard file. */
+        Map<String, String> shardChecksums = new TreeMap<>();
+    }
+
+    private final Path dir;
+
+    public TrainingDataShards(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Hash of the parts of a recipe that end up in its training block.
+     */
+    public static String recipeHash(NERDataGenerator.Recipe recipe) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(recipe.name == null ? 0 : recipe.name.length()).append(':').append(recipe.name).append('\n');
+        if (recipe.instructions != null) {
+            for (String instruction : recipe.instructions) {
+                sb.append(instruction == null ? 0 : instruction.length()).append(':').append(instruction).append('\n');
+            }
+        }
+        return Hashing.sha256(sb.toString());
+    }
+
+    /**
+     * Re-annotates recipes whose shard is missing (or all of them if the gazetteer changed or
+     * {@code force} is set) and rewrites the manifest. Shards no longer referenced are deleted.
+     *
+     * @return The number of recipes that were re-annotated.
+     */
+    public int update(List<NERDataGenerator.Recipe> recipes, GazetteerMatcher matcher, String gazetteerHash,
+                      int threads, boolean force) throws IOException {
+        Manifest previous = readManifest();
+        boolean gazetteerChanged = force || previous == null || !gazetteerHash.equals(previous.gazetteerHash);
+        if (gazetteerChanged && previous != null && !force) {
+            System.out.println("Gazetteer or keyword sets changed, re-annotating all recipes.");
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.gazetteerHash = gazetteerHash;
+        Map<String, String> verified = gazetteerChanged ? new HashMap<>() : verifiedShards(previous);
+        List<NERDataGenerator.Recipe> stale = new ArrayList<>();
+        List<String> staleHashes = new ArrayList<>();
+        Set<String> scheduled = new HashSet<>();
+        for (NERDataGenerator.Recipe recipe : recipes) {
+            String hash = recipeHash(recipe);
+            manifest.recipeHashes.add(hash);
+            String checksum = verified.get(hash);
+            if (checksum != null) {
+                manifest.shardChecksums.put(hash, checksum);
+            } else if (scheduled.add(hash)) {
+                stale.add(recipe);
+                staleHashes.add(hash);
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            NERDataGenerator.annotateRecipes(stale, matcher, threads, (index, block) -> {
+                byte[] content = block.getBytes(StandardCharsets.UTF_8);
+                writeAtomically(shardPath(staleHashes.get(index)), content);
+                manifest.shardChecksums.put(staleHashes.get(index), Hashing.sha256(content));
+            });
+        }
+        deleteUnreferenced(new HashSet<>(manifest.recipeHashes));
+        writeManifest(manifest);
+        return stale.size();
+    }
+
+    /**
+     * Writes the training file by concatenating the shards listed in the manifest.
+     */
+    public void concatenate(Writer out) throws IOException {
+        Manifest manifest = readManifest();
+        if (manifest == null) {
+            throw new IOException("No shard manifest in " + dir);
+        }
+        for (String hash : manifest.recipeHashes) {
+            byte[] content = Files.readAllBytes(shardPath(hash));
+            if (!Hashing.sha256(content).equals(manifest.shardChecksums.get(hash))) {
+                throw new IOException("Shard " + shardPath(hash) + " doesn't match the manifest; run the update again");
+            }
+            out.write(new String(content, StandardCharsets.UTF_8));
+        }
+    }
+
+    // The previous run's shards whose content still matches their recorded checksum.
+    private Map<String, String> verifiedShards(Manifest previous) throws IOException {
+        Map<String, String> verified = new HashMap<>();
+        for (Map.Entry<String, String> entry : previous.shardChecksums.entrySet()) {
+            Path shard = shardPath(entry.getKey());
+            if (Files.isRegularFile(shard) && Hashing.sha256(Files.readAllBytes(shard)).equals(entry.getValue())) {
+                verified.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return verified;
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, content);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path shardPath(String hash) {
+        return dir.resolve(hash + ".txt");
+    }
+
+    private void deleteUnreferenced(Set<String> referenced) throws IOException {
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(dir, "*.txt")) {
+            for (Path shard : shards) {
+                String name = shard.getFileName().toString();
+                if (!referenced.contains(name.substring(0, name.length() - ".txt".length()))) {
+                    Files.delete(shard);
+                }
+            }
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(dir, "*.tmp")) {
+            for (Path leftover : leftovers) {
+                Files.delete(leftover); // from an interrupted run
+            }
+        }
+    }
+
+    private Manifest readManifest() throws IOException {
+        Path file = dir.resolve(MANIFEST);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return Json.FIELDS.readValue(in, Manifest.class);
+        }
+    }
+
+    private void writeManifest(Manifest manifest) throws IOException {
+        writeAtomically(dir.resolve(MANIFEST), Json.FIELDS.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+    }
+}
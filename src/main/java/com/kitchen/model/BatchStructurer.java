@@ -0,0 +1,236 @@
+package com.kitchen.model;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kitchen.model.processing.RecipeProcessor;
+import com.kitchen.model.processing.StageTimings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless batch mode: structures a whole recipe file with {@link RecipeProcessor} and writes one
+ * {@link StructuredRecipe} per line (JSON Lines), in input order.
+ *
+ * Recipes are read one at a time (JSON array or JSON Lines) and kept in flight on the processor's worker
+ * pool up to a small multiple of the thread count, so memory stays flat however large the input is. The
+ * structured output goes to stdout or {@code --output}; progress and the final report go to stderr.
+ *
+ * Usage: {@code Main --batch <recipeFile> [--output file] [--model path] [--threads N] [--limit N]
+ * [--sentence-cache N] [--progress-seconds N]}
+ */
+public class BatchStructurer {
+
+    private static final String DEFAULT_MODEL = "ner-model.ser.gz";
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
+    private final PrintStream log = System.err;
+    private String recipeFile;
+    private String outputFile; // null = stdout
+    private String modelPath = DEFAULT_MODEL;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long limit = Long.MAX_VALUE;
+    private int sentenceCacheSize = RecipeProcessor.DEFAULT_SENTENCE_CACHE_SIZE;
+    private int progressSeconds = 5;
+
+    private final AtomicLong processed = new AtomicLong();
+    private long failed;
+    private long readNanos;
+    private long writeNanos;
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * @param args The arguments after {@code --batch}.
+     * @return The process exit code.
+     */
+    public static int run(String[] args) {
+        BatchStructurer batch = new BatchStructurer();
+        if (!batch.parseArgs(args)) {
+            System.err.println("Usage: Main --batch <recipeFile> [--output file] [--model path] [--threads N] [--limit N]"
+                    + " [--sentence-cache N] [--progress-seconds N]");
+            return 2;
+        }
+        try {
+            return batch.execute();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Batch run failed: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    private boolean parseArgs(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                boolean hasValue = i + 1 < args.length;
+                if ("--output".equals(arg) && hasValue) {
+                    outputFile = args[++i];
+                } else if ("--model".equals(arg) && hasValue) {
+                    modelPath = args[++i];
+                } else if ("--threads".equals(arg) && hasValue) {
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                } else if ("--limit".equals(arg) && hasValue) {
+                    limit = Long.parseLong(args[++i]);
+                } else if ("--sentence-cache".equals(arg) && hasValue) {
+                    sentenceCacheSize = Integer.parseInt(args[++i]);
+                } else if ("--progress-seconds".equals(arg) && hasValue) {
+                    progressSeconds = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (!arg.startsWith("--") && recipeFile == null) {
+                    recipeFile = arg;
+                } else {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return recipeFile != null;
+    }
+
+    private int execute() throws IOException {
+        long runStart = System.nanoTime();
+        log.println("Batch: " + recipeFile + " -> " + (outputFile == null ? "stdout" : outputFile)
+                + " with " + threads + " threads, model " + modelPath);
+
+        long loadStart = System.nanoTime();
+        RecipeProcessor processor = new RecipeProcessor(modelPath, threads, sentenceCacheSize);
+        long modelLoadNanos = System.nanoTime() - loadStart;
+        log.printf("Model loaded in %.1f s.%n", modelLoadNanos / 1e9);
+
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectWriter writer = mapper.writerFor(StructuredRecipe.class);
+        long processStart = System.nanoTime();
+        ScheduledExecutorService reporter = startProgressReporter(processStart);
+        try (RecipeProcessor p = processor;
+             InputStream in = Files.newInputStream(Paths.get(recipeFile));
+             MappingIterator<InputRecipe> recipes = mapper.readerFor(InputRecipe.class).readValues(in);
+             Writer out = openOutput()) {
+
+            // Futures in input order; the head is written as soon as it is done.
+            Deque<CompletableFuture<StructuredRecipe>> inFlight = new ArrayDeque<>();
+            int maxInFlight = threads * IN_FLIGHT_PER_THREAD;
+            long read = 0;
+            while (read < limit) {
+                long t0 = System.nanoTime();
+                boolean more = recipes.hasNextValue();
+                InputRecipe recipe = more ? recipes.nextValue() : null;
+                readNanos += System.nanoTime() - t0;
+                if (!more) {
+                    break;
+                }
+                read++;
+                inFlight.addLast(p.processAsync(recipe));
+                while (inFlight.size() >= maxInFlight || (!inFlight.isEmpty() && inFlight.peekFirst().isDone())) {
+                    write(inFlight.pollFirst(), writer, out);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.pollFirst(), writer, out);
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+        long processNanos = System.nanoTime() - processStart;
+
+        printReport(processor.getStageTimings(), modelLoadNanos, processNanos, System.nanoTime() - runStart);
+        return failed == 0 ? 0 : 1;
+    }
+
+    private Writer openOutput() throws IOException {
+        OutputStream stream = outputFile == null ? System.out : Files.newOutputStream(Paths.get(outputFile));
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private void write(CompletableFuture<StructuredRecipe> future, ObjectWriter writer, Writer out) throws IOException {
+        StructuredRecipe structured;
+        try {
+            structured = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a recipe", e);
+        } catch (ExecutionException e) {
+            failed++;
+            log.println("Failed to process a recipe: " + e.getCause());
+            return;
+        }
+        long t0 = System.nanoTime();
+        out.write(writer.writeValueAsString(structured));
+        out.write('\n');
+        writeNanos += System.nanoTime() - t0;
+        processed.incrementAndGet();
+    }
+
+    private ScheduledExecutorService startProgressReporter(long processStart) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        long[] last = {processStart, 0};
+        reporter.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            long done = processed.get();
+            log.printf("  %,d recipes, %.1f recipes/s (%.1f recipes/s overall), heap %d MB%n",
+                    done, (done - last[1]) / ((now - last[0]) / 1e9), done / ((now - processStart) / 1e9),
+                    usedHeapBytes() >> 20);
+            last[0] = now;
+            last[1] = done;
+        }, progressSeconds, progressSeconds, TimeUnit.SECONDS);
+        return reporter;
+    }
+
+    private void printReport(StageTimings timings, long modelLoadNanos, long processNanos, long wallNanos) {
+        long done = processed.get();
+        log.println("------------------------------------------");
+        log.printf("Recipes: %,d structured, %d failed, %,d sentences%n", done, failed, timings.getSentences());
+        log.printf("Throughput: %.1f recipes/s on %d threads (%.1f s processing, %.1f s wall)%n",
+                done / (processNanos / 1e9), threads, processNanos / 1e9, wallNanos / 1e9);
+        log.printf("Stages: model load %.0f ms, read %.0f ms, write %.0f ms (main thread)%n",
+                modelLoadNanos / 1e6, readNanos / 1e6, writeNanos / 1e6);
+        log.println("        " + timings + " (summed over workers)");
+        if (timings.getRecipes() > 0) {
+            log.printf("        %.2f ms/recipe of worker time%n", timings.getTotalNanos() / 1e6 / timings.getRecipes());
+        }
+        log.printf("Peak heap: %d MB%n", peakHeapBytes() >> 20);
+        log.println("------------------------------------------");
+    }
+
+    private static long usedHeapBytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // Sum of the heap pools' peaks; an upper bound, as pools needn't peak at the same moment.
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -1,5 +1,6 @@
 package com.kitchen.model; 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
@@ -56,14 +57,25 @@ public class InputRecipe {
         this.instructions = instructions;
     }
 
+    /**
+     * The {@link com.kitchen.model.processing.StructuredRecipeCache#recipeHash} of this recipe if it is known
+     * without reading the instructions, e.g. computed while indexing a {@link RecipeCorpus}; otherwise null.
+     */
+    @JsonIgnore
+    public String getContentHash() {
+        return null;
+    }
+
     @Override
     public String toString() {
+        List<String> instructions = getInstructions();
+        List<InputIngredient> ingredients = getIngredients();
         String instrPreview = (instructions != null && !instructions.isEmpty())
                               ? String.join(" ", instructions).substring(0, Math.min(String.join(" ", instructions).length(), 60)) + "..."
                               : "[]";
         return "InputRecipe{" +
-               "name='" + name + '\'' +
-               ", url='" + url + '\'' +
+               "name='" + getName() + '\'' +
+               ", url='" + getUrl() + '\'' +
                ", ingredients=" + (ingredients != null ? ingredients.size() : 0) + " items" +
                ", instructions='" + instrPreview +
                '}';
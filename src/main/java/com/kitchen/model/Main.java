@@ -1,24 +1,51 @@
 package com.kitchen.model; // Or your package name
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kitchen.model.processing.ModelFileWatcher;
 import com.kitchen.model.processing.RecipeProcessor; // Adjust package name if needed
+import com.kitchen.model.processing.StructuredRecipeCache;
 
 import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 public class Main {
 
     private static final String RECIPE_JSON_FILENAME = "complete_indian_recipes.json"; // Corrected underscore
+    private static final String RECIPE_JSONL_FILENAME = "complete_indian_recipes.jsonl"; // Crawler's streaming output
     private static final String NER_MODEL_FILENAME = "ner-model.ser.gz";
-    private static RecipeProcessor processor;
-    private static List<InputRecipe> recipes;
+    private static final String STRUCTURED_CACHE_FILENAME = "structured-recipes.cache.gz";
+    private static final int WARM_UP_ROUNDS = 10;
 
     public static void main(String[] args) {
+        StartupTimer.start();
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            // Headless: no Swing, just structure the given file and exit.
+            System.exit(BatchStructurer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && "--serve".equals(args[0])) {
+            // Headless HTTP service; keeps running on the server's threads.
+            int exitCode = RecipeService.run(Arrays.copyOfRange(args, 1, args.length));
+            if (exitCode != 0) {
+                System.exit(exitCode);
+            }
+            return;
+        }
 
         String recipeJsonPath = findFilePath(RECIPE_JSON_FILENAME);
+        if (recipeJsonPath == null) {
+            recipeJsonPath = findFilePath(RECIPE_JSONL_FILENAME);
+        }
         String nerModelPath = findFilePath(NER_MODEL_FILENAME);
 
         if (recipeJsonPath == null) {
@@ -35,35 +62,113 @@ public class Main {
         System.out.println("Using NER Model File: " + nerModelPath);
         System.out.println("------------------------------------------");
 
-        // 1. Load Recipes from JSON
-        recipes = loadRecipes(recipeJsonPath);
-        if (recipes == null || recipes.isEmpty()) {
-            showErrorDialog("No recipes loaded or error loading recipes. Exiting.");
-            return;
-        }
+        // 1. Load recipes and the NER model concurrently; neither blocks the window.
+        String recipePath = recipeJsonPath;
+        CompletableFuture<List<InputRecipe>> recipesFuture = startAsync("recipe-loader", () -> {
+            List<InputRecipe> loaded = loadRecipes(recipePath);
+            if (loaded == null || loaded.isEmpty()) {
+                showErrorDialog("No recipes loaded or error loading recipes.");
+                throw new IllegalStateException("No recipes loaded");
+            }
+            StartupTimer.mark("Recipes loaded (" + loaded.size() + ")");
+            return loaded;
+        });
+        CompletableFuture<RecipeProcessor> processorFuture = startAsync("model-loader", () -> {
+            try {
+                System.out.println("Loading NER model in the background...");
+                RecipeProcessor loaded = new RecipeProcessor(nerModelPath);
+                StartupTimer.mark("NER model loaded");
+                // 2. Compile the tagging path before the first real request.
+                loaded.warmUp(WARM_UP_ROUNDS);
+                StartupTimer.mark("NER warm-up done");
+                watchModelFile(loaded, nerModelPath);
+                return loaded;
+            } catch (RuntimeException e) {
+                showErrorDialog("FATAL ERROR: Failed to initialize Recipe Processor:\n" + e.getMessage());
+                e.printStackTrace(); // Print detailed error for debugging
+                throw e;
+            }
+        });
 
-        // 2. Initialize Recipe Processor (this loads the NER model)
-        try {
-            System.out.println("Loading NER model (this may take a moment)...");
-            processor = new RecipeProcessor(nerModelPath);
-            System.out.println("NER model loaded successfully.");
-        } catch (RuntimeException e) {
-            showErrorDialog("FATAL ERROR: Failed to initialize Recipe Processor:\n" + e.getMessage());
-             e.printStackTrace(); // Print detailed error for debugging
-            return; // Exit if processor fails to load
-        }
-        System.out.println("------------------------------------------");
+        // 3. Open the structured recipe cache and fill in missing/stale entries once everything is loaded,
+        //    and again whenever a new model is swapped in
+        CompletableFuture<StructuredRecipeCache> cacheFuture = startAsync("structured-cache-loader", () -> {
+            StructuredRecipeCache cache = openStructuredCache(nerModelPath);
+            if (cache != null) {
+                System.out.println("Structured recipe cache: " + cache.size() + " up-to-date entries.");
+            }
+            return cache;
+        });
+        CompletableFuture.allOf(recipesFuture, processorFuture, cacheFuture).thenRun(() -> {
+            StructuredRecipeCache cache = cacheFuture.join();
+            if (cache != null) {
+                List<InputRecipe> loadedRecipes = recipesFuture.join();
+                RecipeProcessor loadedProcessor = processorFuture.join();
+                cache.precompute(loadedRecipes, loadedProcessor);
+                loadedProcessor.addModelListener(modelVersion -> {
+                    cache.invalidate(modelVersion);
+                    cache.precompute(loadedRecipes, loadedProcessor);
+                });
+            }
+        });
 
-        // 3. Launch the Swing GUI on the Event Dispatch Thread (EDT)
+        // 4. Launch the Swing GUI on the Event Dispatch Thread (EDT) right away
         SwingUtilities.invokeLater(() -> {
-            // Create and display the main recipe selection window
-            RecipeSelectorWindow selectorWindow = new RecipeSelectorWindow(recipes, processor);
+            // Create and display the main recipe selection window; it fills in as the futures complete
+            RecipeSelectorWindow selectorWindow = new RecipeSelectorWindow(recipesFuture, processorFuture, cacheFuture);
             selectorWindow.setVisible(true);
+            StartupTimer.mark("First window shown");
         });
     }
 
+    private static <T> CompletableFuture<T> startAsync(String name, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(task.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    // Hot-reloads the model when a model file on disk changes; models loaded from the classpath can't change.
+    static void watchModelFile(RecipeProcessor processor, String nerModelPath) {
+        File modelFile = new File(nerModelPath);
+        if (!modelFile.isFile()) {
+            return;
+        }
+        try {
+            new ModelFileWatcher(processor, modelFile.toPath());
+        } catch (IOException e) {
+            System.err.println("Not watching the model file for updates: " + e.getMessage());
+        }
+    }
+
     // --- Helper methods remain mostly the same ---
 
+    // Returns null (no caching) if the model can't be hashed.
+    private static StructuredRecipeCache openStructuredCache(String nerModelPath) {
+        try {
+            StructuredRecipeCache cache = new StructuredRecipeCache(Paths.get(STRUCTURED_CACHE_FILENAME),
+                    StructuredRecipeCache.modelHash(nerModelPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    cache.save(); // keeps results computed on demand after the background pass
+                } catch (IOException e) {
+                    System.err.println("Could not save structured recipe cache: " + e.getMessage());
+                }
+            }));
+            return cache;
+        } catch (IOException e) {
+            System.err.println("Structured recipe cache disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
     private static String findFilePath(String filename) {
         File fileInCurrentDir = new File(filename);
         if (fileInCurrentDir.exists() && fileInCurrentDir.isFile()) {
@@ -77,26 +182,19 @@ public class Main {
         return null;
     }
 
+    // Indexes the recipes (names and file offsets only); their details are read when a recipe is opened or processed.
     private static List<InputRecipe> loadRecipes(String pathOrResourceName) {
-        ObjectMapper mapper = new ObjectMapper();
-        InputStream inputStream = null;
         try {
             File recipeFile = new File(pathOrResourceName);
+            RecipeCorpus corpus;
             if (recipeFile.exists() && recipeFile.isFile()) {
-                System.out.println("Reading recipes from file system: " + pathOrResourceName);
-                return mapper.readValue(recipeFile, new TypeReference<List<InputRecipe>>() {});
+                System.out.println("Indexing recipes from file system: " + pathOrResourceName);
+                corpus = RecipeCorpus.open(recipeFile.toPath());
             } else {
-                System.out.println("Attempting to read recipes from classpath resource: " + pathOrResourceName);
-                inputStream = Main.class.getClassLoader().getResourceAsStream(pathOrResourceName);
-                if (inputStream != null) {
-                    try (InputStream stream = inputStream) {
-                        return mapper.readValue(stream, new TypeReference<List<InputRecipe>>() {});
-                    }
-                } else {
-                    System.err.println("Recipe resource not found in classpath: " + pathOrResourceName);
-                    return null;
-                }
+                System.out.println("Attempting to index recipes from classpath resource: " + pathOrResourceName);
+                corpus = RecipeCorpus.openResource(pathOrResourceName);
             }
+            return corpus.getRecipes(); // the corpus stays open for the life of the application
         } catch (IOException e) {
             System.err.println("Error reading or parsing recipe file/resource: " + pathOrResourceName);
             e.printStackTrace();
@@ -104,6 +202,26 @@ public class Main {
         }
     }
 
+    // Reads either a JSON array of recipes or JSON Lines (one recipe object per line).
+    public static List<InputRecipe> readRecipes(InputStream stream) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        try (JsonParser parser = mapper.getFactory().createParser(stream)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                return new ArrayList<>();
+            }
+            if (first == JsonToken.START_ARRAY) {
+                return mapper.readValue(parser, new TypeReference<List<InputRecipe>>() {});
+            }
+            List<InputRecipe> recipes = new ArrayList<>();
+            MappingIterator<InputRecipe> it = mapper.readerFor(InputRecipe.class).readValues(parser);
+            while (it.hasNextValue()) {
+                recipes.add(it.nextValue());
+            }
+            return recipes;
+        }
+    }
+
      // Helper to show error dialogs
     private static void showErrorDialog(String message) {
         // Ensure dialog runs on EDT if called from non-GUI thread, though here it's before GUI launch
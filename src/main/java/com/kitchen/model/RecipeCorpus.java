@@ -0,0 +1,262 @@
+package com.kitchen.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.kitchen.model.processing.StructuredRecipeCache;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A recipe file (a JSON array of recipes or JSON Lines) opened without binding it. Opening streams over the file
+ * once and keeps only each recipe's name, the byte range of its JSON object and the hash the structured recipe cache
+ * keys it by (see {@link InputRecipe#getContentHash()}); url, ingredients and instructions
+ * are read from the file when a recipe's getters are first called, and are held softly so the GC can drop them
+ * again. Startup time and heap therefore grow with the number of recipes rather than with their text.
+ *
+ * The file is kept open until {@link #close()}; a file replaced on disk meanwhile (the crawler renames a new
+ * version into place) is not seen, the recipes keep reading the version that was indexed.
+ */
+public class RecipeCorpus implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ObjectReader reader = MAPPER.readerFor(InputRecipe.class);
+    private final List<InputRecipe> recipes;
+
+    private RecipeCorpus(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.recipes = Collections.unmodifiableList(index());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static RecipeCorpus open(Path file) throws IOException {
+        return new RecipeCorpus(file);
+    }
+
+    /**
+     * Opens a recipe file on the classpath. A resource inside a JAR can't be read at an offset, so it is copied
+     * to a temporary file first.
+     */
+    public static RecipeCorpus openResource(String name) throws IOException {
+        URL url = RecipeCorpus.class.getClassLoader().getResource(name);
+        if (url == null) {
+            throw new IOException("Recipe resource not found in classpath: " + name);
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                // fall through to the copy
+            }
+        }
+        Path copy = Files.createTempFile("recipes", ".json");
+        copy.toFile().deleteOnExit();
+        try (InputStream in = url.openStream()) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return open(copy);
+    }
+
+    /**
+     * The indexed recipes in file order. Their details are loaded on first use; a recipe that can't be read then
+     * throws {@link UncheckedIOException} from its getter.
+     */
+    public List<InputRecipe> getRecipes() {
+        return recipes;
+    }
+
+    public int size() {
+        return recipes.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // One pass with the streaming parser: the name of each top-level object, where the object starts and ends, and
+    // its cache hash from the instructions streamed past (none if they aren't plain strings and need binding rules).
+    private List<InputRecipe> index() throws IOException {
+        List<InputRecipe> indexed = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+             JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a recipe object in " + file + " at " + parser.getTokenLocation());
+                }
+                long start = parser.getTokenLocation().getByteOffset();
+                String name = null;
+                List<String> instructions = null;
+                boolean hashable = true;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+                        name = parser.getText();
+                    } else if ("instructions".equals(field)) {
+                        instructions = null;
+                        hashable = value == JsonToken.VALUE_NULL;
+                        if (value == JsonToken.START_ARRAY) {
+                            instructions = new ArrayList<>();
+                            hashable = true;
+                            while ((value = parser.nextToken()) != JsonToken.END_ARRAY) {
+                                if (value == JsonToken.VALUE_STRING) {
+                                    instructions.add(parser.getText());
+                                } else if (value == JsonToken.VALUE_NULL) {
+                                    instructions.add(null);
+                                } else {
+                                    hashable = false;
+                                    parser.skipChildren();
+                                }
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                long end = parser.getCurrentLocation().getByteOffset();
+                LazyRecipe recipe = new LazyRecipe(this, name, start, (int) (end - start));
+                if (hashable) {
+                    InputRecipe hashed = new InputRecipe();
+                    hashed.setName(name);
+                    hashed.setInstructions(instructions);
+                    recipe.contentHash = StructuredRecipeCache.recipeHash(hashed);
+                }
+                indexed.add(recipe);
+                token = parser.nextToken();
+            }
+        }
+        return indexed;
+    }
+
+    // Reads and binds one recipe object; positional reads, so recipes can load concurrently.
+    private InputRecipe read(long offset, int length) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Recipe file " + file + " was truncated");
+                }
+            }
+            return reader.readValue(buffer.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read recipe at byte " + offset + " of " + file, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * An indexed recipe: the name and content hash are known, everything else is read from the corpus file when
+     * asked for. Setters pin the loaded details so the change isn't lost when the soft reference is cleared; changing
+     * the name or instructions drops the indexed hash.
+     */
+    private static final class LazyRecipe extends InputRecipe {
+
+        private final RecipeCorpus corpus;
+        private final long offset;
+        private final int length;
+        private volatile SoftReference<InputRecipe> loaded = new SoftReference<>(null);
+        private volatile InputRecipe pinned;
+        private volatile String contentHash;
+
+        LazyRecipe(RecipeCorpus corpus, String name, long offset, int length) {
+            this.corpus = corpus;
+            this.offset = offset;
+            this.length = length;
+            super.setName(name);
+        }
+
+        private InputRecipe details() {
+            InputRecipe recipe = pinned;
+            if (recipe == null) {
+                recipe = loaded.get();
+            }
+            if (recipe == null) {
+                recipe = corpus.read(offset, length);
+                loaded = new SoftReference<>(recipe);
+            }
+            return recipe;
+        }
+
+        private synchronized InputRecipe pin() {
+            if (pinned == null) {
+                pinned = details();
+            }
+            return pinned;
+        }
+
+        @Override
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        @Override
+        public void setName(String name) {
+            contentHash = null;
+            super.setName(name);
+        }
+
+        @Override
+        public String getUrl() {
+            return details().getUrl();
+        }
+
+        @Override
+        public void setUrl(String url) {
+            pin().setUrl(url);
+        }
+
+        @Override
+        public List<InputIngredient> getIngredients() {
+            return details().getIngredients();
+        }
+
+        @Override
+        public void setIngredients(List<InputIngredient> ingredients) {
+            pin().setIngredients(ingredients);
+        }
+
+        @Override
+        public List<String> getInstructions() {
+            return details().getInstructions();
+        }
+
+        @Override
+        public void setInstructions(List<String> instructions) {
+            contentHash = null;
+            pin().setInstructions(instructions);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.kitchen.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares loading a recipe file eagerly ({@link Main#readRecipes}) with indexing it ({@link RecipeCorpus}):
+ * load time, heap retained by the loaded list, and the time to read every recipe's details afterwards. Also checks
+ * that both give the same recipes.
+ *
+ * Usage: {@code RecipeCorpusBenchmark [recipeFile] [--rounds N]}
+ */
+public class RecipeCorpusBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path recipeFile = Paths.get("src/main/resources/complete_indian_recipes.json");
+        int rounds = 10;
+        for (int i = 0; i < args.length; i++) {
+            if ("--rounds".equals(args[i]) && i + 1 < args.length) {
+                rounds = Math.max(2, Integer.parseInt(args[++i]));
+            } else {
+                recipeFile = Paths.get(args[i]);
+            }
+        }
+
+        List<InputRecipe> eager = readEagerly(recipeFile);
+        int mismatches = 0;
+        try (RecipeCorpus corpus = RecipeCorpus.open(recipeFile)) {
+            List<InputRecipe> indexed = corpus.getRecipes();
+            if (indexed.size() != eager.size()) {
+                System.out.println("Different recipe counts: eager " + eager.size() + ", indexed " + indexed.size());
+                mismatches++;
+            }
+            for (int i = 0; i < Math.min(eager.size(), indexed.size()); i++) {
+                if (!sameRecipe(eager.get(i), indexed.get(i)) && mismatches++ < 10) {
+                    System.out.println("Different recipe at " + i + ": " + eager.get(i) + " / " + indexed.get(i));
+                }
+            }
+        }
+
+        // The first round is warm-up.
+        long eagerNanos = 0;
+        long indexNanos = 0;
+        long detailNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            readEagerly(recipeFile);
+            long eagerRound = System.nanoTime() - start;
+            start = System.nanoTime();
+            try (RecipeCorpus corpus = RecipeCorpus.open(recipeFile)) {
+                long indexRound = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (InputRecipe recipe : corpus.getRecipes()) {
+                    recipe.getInstructions();
+                }
+                if (round > 0) {
+                    eagerNanos += eagerRound;
+                    indexNanos += indexRound;
+                    detailNanos += System.nanoTime() - start;
+                }
+            }
+        }
+
+        long baseline = usedHeapAfterGc();
+        List<InputRecipe> retainedEager = readEagerly(recipeFile);
+        long eagerBytes = usedHeapAfterGc() - baseline;
+        int retainedCount = retainedEager.size(); // keeps the list reachable until measured
+        retainedEager = null;
+        baseline = usedHeapAfterGc();
+        long indexedBytes;
+        try (RecipeCorpus retainedCorpus = RecipeCorpus.open(recipeFile)) {
+            indexedBytes = usedHeapAfterGc() - baseline;
+            retainedCount = Math.max(retainedCount, retainedCorpus.size()); // keeps the corpus reachable until measured
+        }
+
+        int measured = rounds - 1;
+        System.out.println("------------------------------------------");
+        System.out.println("Recipes: " + retainedCount + " (" + Files.size(recipeFile) / 1024 + " KB file)");
+        System.out.printf("Eager load:   %8.2f ms, %6d KB retained%n", eagerNanos / 1e6 / measured, eagerBytes / 1024);
+        System.out.printf("Index:        %8.2f ms, %6d KB retained%n", indexNanos / 1e6 / measured, indexedBytes / 1024);
+        System.out.printf("Read all details from the index: %.2f ms%n", detailNanos / 1e6 / measured);
+        System.out.println("Identical recipes: " + (mismatches == 0) + (mismatches == 0 ? "" : " (" + mismatches + " differ)"));
+        System.out.println("------------------------------------------");
+    }
+
+    private static List<InputRecipe> readEagerly(Path recipeFile) throws IOException {
+        try (InputStream in = Files.newInputStream(recipeFile)) {
+            return Main.readRecipes(in);
+        }
+    }
+
+    private static boolean sameRecipe(InputRecipe a, InputRecipe b) {
+        if (!Objects.equals(a.getName(), b.getName()) || !Objects.equals(a.getUrl(), b.getUrl())
+                || !Objects.equals(a.getInstructions(), b.getInstructions())) {
+            return false;
+        }
+        List<InputIngredient> x = a.getIngredients();
+        List<InputIngredient> y = b.getIngredients();
+        if (x == null || y == null) {
+            return x == y;
+        }
+        if (x.size() != y.size()) {
+            return false;
+        }
+        for (int i = 0; i < x.size(); i++) {
+            if (!Objects.equals(String.valueOf(x.get(i)), String.valueOf(y.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
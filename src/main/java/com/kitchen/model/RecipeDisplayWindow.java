@@ -4,13 +4,15 @@ package com.kitchen.model; // Or your package name
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class RecipeDisplayWindow extends JFrame {
 
     private final InputRecipe inputRecipe; // Keep original for ingredients list
-    private final StructuredRecipe structuredRecipe;
+    private final List<RecipeStep> steps = new ArrayList<>(); // grows while steps are streamed in
+    private boolean processingComplete;
     private int currentStepIndex = -1; // Start before the first step
 
     private JTextArea ingredientsArea;
@@ -19,8 +21,28 @@ public class RecipeDisplayWindow extends JFrame {
     private JLabel stepTitleLabel;
 
     public RecipeDisplayWindow(InputRecipe inputRecipe, StructuredRecipe structuredRecipe) {
+        this(inputRecipe);
+        if (structuredRecipe != null && structuredRecipe.getSteps() != null) {
+            steps.addAll(structuredRecipe.getSteps());
+        }
+        processingComplete = true;
+
+        // Initial state check for the button
+        if (steps.isEmpty()) {
+            nextButton.setEnabled(false);
+            stepTitleLabel.setText("No processed steps found for this recipe.");
+        } else {
+            nextButton.setEnabled(true);
+            stepTitleLabel.setText("Press 'Next Step' to begin");
+        }
+    }
+
+    /**
+     * Opens the window before the recipe is processed; steps are then added with {@link #addStep}
+     * and {@link #finishProcessing()} is called at the end. All three must run on the EDT.
+     */
+    public RecipeDisplayWindow(InputRecipe inputRecipe) {
         this.inputRecipe = inputRecipe;
-        this.structuredRecipe = structuredRecipe;
 
         setTitle("Recipe: " + inputRecipe.getName());
         setSize(600, 700);
@@ -44,7 +66,7 @@ public class RecipeDisplayWindow extends JFrame {
         JPanel stepsPanel = new JPanel(new BorderLayout(5, 5));
         stepsPanel.setBorder(BorderFactory.createTitledBorder("Instructions"));
 
-        stepTitleLabel = new JLabel("Press 'Next Step' to begin", SwingConstants.CENTER);
+        stepTitleLabel = new JLabel("Processing instructions...", SwingConstants.CENTER);
         stepTitleLabel.setFont(stepTitleLabel.getFont().deriveFont(Font.BOLD));
         stepsPanel.add(stepTitleLabel, BorderLayout.NORTH);
 
@@ -58,6 +80,7 @@ public class RecipeDisplayWindow extends JFrame {
 
         // --- Button Panel ---
         nextButton = new JButton("Next Step");
+        nextButton.setEnabled(false);
         nextButton.addActionListener(e -> displayNextStep());
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         buttonPanel.add(nextButton);
@@ -69,12 +92,6 @@ public class RecipeDisplayWindow extends JFrame {
         splitPane.setResizeWeight(0.3); // Give ingredients less space initially
         add(splitPane, BorderLayout.CENTER);
 
-        // Initial state check for the button
-        if (structuredRecipe == null || structuredRecipe.getSteps() == null || structuredRecipe.getSteps().isEmpty()) {
-            nextButton.setEnabled(false);
-            stepTitleLabel.setText("No processed steps found for this recipe.");
-        }
-
          // Add padding to the main content pane
         ((JPanel)getContentPane()).setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
     }
@@ -107,19 +124,47 @@ public class RecipeDisplayWindow extends JFrame {
         ingredientsArea.setCaretPosition(0); // Scroll to top
     }
 
+    /**
+     * Adds a newly processed step; the first one is shown right away.
+     */
+    public void addStep(RecipeStep step) {
+        steps.add(step);
+        if (currentStepIndex < 0) {
+            displayNextStep();
+        } else {
+            updateNextButton();
+        }
+    }
+
+    /**
+     * Marks the streamed recipe as fully processed.
+     */
+    public void finishProcessing() {
+        processingComplete = true;
+        if (steps.isEmpty()) {
+            stepTitleLabel.setText("No processed steps found for this recipe.");
+        }
+        updateNextButton();
+    }
+
+    /**
+     * Marks the streamed recipe as failed; steps received so far stay available.
+     */
+    public void failProcessing(String message) {
+        processingComplete = true;
+        if (steps.isEmpty()) {
+            stepTitleLabel.setText("Processing failed.");
+            stepDisplayArea.setText(message);
+        }
+        updateNextButton();
+    }
+
     private void displayNextStep() {
         currentStepIndex++;
-        List<RecipeStep> steps = structuredRecipe.getSteps();
 
-        if (steps != null && currentStepIndex < steps.size()) {
+        if (currentStepIndex < steps.size()) {
             displayStep(steps.get(currentStepIndex));
-            if (currentStepIndex == steps.size() - 1) {
-                nextButton.setText("End of Recipe");
-                nextButton.setEnabled(false); // Disable after last step
-            } else {
-                 nextButton.setText("Next Step (" + (currentStepIndex + 2) + "/" + steps.size() + ")");
-                 nextButton.setEnabled(true);
-            }
+            updateNextButton();
         } else {
             // Should not happen if button is disabled correctly, but as a fallback:
              stepDisplayArea.setText("No more steps.");
@@ -127,6 +172,21 @@ public class RecipeDisplayWindow extends JFrame {
         }
     }
 
+    private void updateNextButton() {
+        if (currentStepIndex < 0) {
+            nextButton.setEnabled(false);
+        } else if (currentStepIndex < steps.size() - 1) {
+            nextButton.setText("Next Step (" + (currentStepIndex + 2) + "/" + steps.size() + (processingComplete ? "" : "+") + ")");
+            nextButton.setEnabled(true);
+        } else if (!processingComplete) {
+            nextButton.setText("Processing next step...");
+            nextButton.setEnabled(false);
+        } else {
+            nextButton.setText("End of Recipe");
+            nextButton.setEnabled(false); // Disable after last step
+        }
+    }
+
      private void displayStep(RecipeStep step) {
         stepTitleLabel.setText("Step " + step.getStep());
         StringBuilder sb = new StringBuilder();
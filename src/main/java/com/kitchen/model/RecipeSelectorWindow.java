@@ -1,12 +1,15 @@
 package com.kitchen.model; // Or your package name
 
 import com.kitchen.model.processing.RecipeProcessor; // Adjust if needed
+import com.kitchen.model.processing.StructuredRecipeCache;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent; // Import DocumentListener events
 import javax.swing.event.DocumentListener; // Import DocumentListener interface
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 // No longer need: import java.util.Vector;
 
 public class RecipeSelectorWindow extends JFrame {
@@ -15,12 +18,27 @@ public class RecipeSelectorWindow extends JFrame {
     private DefaultListModel<InputRecipe> listModel; // Use DefaultListModel
     private JButton viewButton;
     private JTextField searchField; // Added search field
-    private RecipeProcessor processor;
-    private List<InputRecipe> allRecipes; // Keep a reference to the full list
+    private JLabel statusLabel;
+    private RecipeProcessor processor; // null until the model has loaded
+    private StructuredRecipeCache structuredCache; // null = always process on demand
+    private List<InputRecipe> allRecipes = new ArrayList<>(); // Keep a reference to the full list
 
     public RecipeSelectorWindow(List<InputRecipe> recipes, RecipeProcessor processor) {
-        this.processor = processor;
-        this.allRecipes = recipes; // Store the original full list
+        this(recipes, processor, null);
+    }
+
+    public RecipeSelectorWindow(List<InputRecipe> recipes, RecipeProcessor processor, StructuredRecipeCache structuredCache) {
+        this(CompletableFuture.completedFuture(recipes), CompletableFuture.completedFuture(processor),
+             CompletableFuture.completedFuture(structuredCache));
+    }
+
+    /**
+     * Creates the window before recipes and model are available: the list fills in when {@code recipes}
+     * completes, and "View" is enabled when {@code processor} completes. Recipes are processed on demand
+     * until {@code structuredCache} completes (with {@code null} for no cache). Must be called on the EDT.
+     */
+    public RecipeSelectorWindow(CompletableFuture<List<InputRecipe>> recipes, CompletableFuture<RecipeProcessor> processor,
+                                CompletableFuture<StructuredRecipeCache> structuredCache) {
 
         setTitle("Recipe Selector");
         setSize(500, 600);
@@ -51,8 +69,7 @@ public class RecipeSelectorWindow extends JFrame {
         add(searchPanel, BorderLayout.NORTH); // Add search panel to the top
 
         // --- Recipe List ---
-        listModel = new DefaultListModel<>(); // Initialize the list model
-        allRecipes.forEach(listModel::addElement); // Add all recipes initially
+        listModel = new DefaultListModel<>(); // Initialize the list model; filled once the recipes are loaded
 
         recipeList = new JList<>(listModel); // Create JList with the dynamic model
         recipeList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -72,12 +89,49 @@ public class RecipeSelectorWindow extends JFrame {
 
         // --- View Button ---
         viewButton = new JButton("View Selected Recipe");
+        viewButton.setEnabled(false); // until the processor is ready
         viewButton.addActionListener(e -> viewSelectedRecipe());
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-        buttonPanel.add(viewButton);
+        statusLabel = new JLabel("Loading recipes and NER model...", SwingConstants.CENTER);
+        JPanel buttonPanel = new JPanel(new BorderLayout(5, 5));
+        JPanel buttonRow = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttonRow.add(viewButton);
+        buttonPanel.add(buttonRow, BorderLayout.CENTER);
+        buttonPanel.add(statusLabel, BorderLayout.SOUTH);
         add(buttonPanel, BorderLayout.SOUTH);
 
         ((JPanel)getContentPane()).setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        recipes.whenComplete((loaded, error) -> SwingUtilities.invokeLater(() -> recipesLoaded(loaded, error)));
+        processor.whenComplete((loaded, error) -> SwingUtilities.invokeLater(() -> processorLoaded(loaded, error)));
+        structuredCache.thenAccept(cache -> SwingUtilities.invokeLater(() -> this.structuredCache = cache));
+    }
+
+    private void recipesLoaded(List<InputRecipe> recipes, Throwable error) {
+        if (error != null || recipes == null) {
+            statusLabel.setText("Could not load recipes.");
+            return;
+        }
+        allRecipes = recipes;
+        filterList();
+        updateStatus();
+    }
+
+    private void processorLoaded(RecipeProcessor loaded, Throwable error) {
+        if (error != null || loaded == null) {
+            statusLabel.setText("NER model failed to load; recipes can't be processed.");
+            return;
+        }
+        processor = loaded;
+        viewButton.setEnabled(true);
+        updateStatus();
+    }
+
+    private void updateStatus() {
+        if (processor == null) {
+            statusLabel.setText(allRecipes.size() + " recipes. Loading NER model...");
+        } else {
+            statusLabel.setText(allRecipes.size() + " recipes. Ready.");
+        }
     }
 
     // Method to filter the list based on search field text
@@ -108,18 +162,40 @@ public class RecipeSelectorWindow extends JFrame {
             return;
         }
 
-        try {
-            System.out.println("Processing '" + selectedRecipe.getName() + "' for display...");
-            StructuredRecipe structuredRecipe = processor.processRecipe(selectedRecipe);
-            System.out.println("Processing complete.");
-
-            RecipeDisplayWindow displayWindow = new RecipeDisplayWindow(selectedRecipe, structuredRecipe);
-            displayWindow.setVisible(true);
-
-        } catch (Exception ex) {
-            System.err.println("Error processing recipe: " + selectedRecipe.getName());
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error processing recipe:\n" + ex.getMessage(), "Processing Error", JOptionPane.ERROR_MESSAGE);
+        StructuredRecipe cached = structuredCache != null ? structuredCache.get(selectedRecipe) : null;
+        if (cached != null) {
+            System.out.println("Using cached structure for '" + selectedRecipe.getName() + "'.");
+            new RecipeDisplayWindow(selectedRecipe, cached).setVisible(true);
+            StartupTimer.mark("First result");
+            return;
         }
+
+        // Open the window right away and stream steps into it as they are classified.
+        System.out.println("Processing '" + selectedRecipe.getName() + "' for display...");
+        RecipeDisplayWindow displayWindow = new RecipeDisplayWindow(selectedRecipe);
+        displayWindow.setVisible(true);
+        StructuredRecipeCache cache = structuredCache;
+        String modelVersion = processor.getModelVersion(); // not cached if the model is reloaded meanwhile
+        processor.processRecipeStreaming(selectedRecipe, step -> SwingUtilities.invokeLater(() -> {
+                    displayWindow.addStep(step);
+                    StartupTimer.mark("First result");
+                }))
+                .whenComplete((structuredRecipe, error) -> {
+                    if (error == null && cache != null) {
+                        cache.put(selectedRecipe, structuredRecipe, modelVersion);
+                    }
+                    SwingUtilities.invokeLater(() -> {
+                        if (error == null) {
+                            System.out.println("Processing complete.");
+                            displayWindow.finishProcessing();
+                        } else {
+                            Throwable cause = error.getCause() != null ? error.getCause() : error;
+                            System.err.println("Error processing recipe: " + selectedRecipe.getName());
+                            cause.printStackTrace();
+                            displayWindow.failProcessing(String.valueOf(cause.getMessage()));
+                            JOptionPane.showMessageDialog(displayWindow, "Error processing recipe:\n" + cause.getMessage(), "Processing Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    });
+                });
     }
 }
\ No newline at end of file
@@ -0,0 +1,440 @@
+package com.kitchen.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kitchen.model.processing.RecipeBatcher;
+import com.kitchen.model.processing.RecipeProcessor;
+import com.kitchen.model.processing.SentenceCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves {@link RecipeProcessor} over HTTP with the JDK's built-in {@link HttpServer}.
+ *
+ * Endpoints:
+ * <ul>
+ *   <li>{@code POST /structure}: one {@link InputRecipe} as JSON, answered with its {@link StructuredRecipe}.</li>
+ *   <li>{@code POST /structure/batch}: a JSON array of recipes, answered with an array in the same order.</li>
+ *   <li>{@code GET /stats}: request latency percentiles, batching and cache counters, model version.</li>
+ *   <li>{@code GET /health}</li>
+ *   <li>{@code POST /model/reload}: loads the model again from its file, or from {@code {"path": "..."}} in the
+ *       body, and swaps it in once it is warmed up; requests keep being served by the old model until then.
+ *       Answered with the model version in use afterwards. The model file is also watched and reloaded when
+ *       it changes.</li>
+ * </ul>
+ *
+ * The service has no authentication, so it listens on the loopback interface unless {@code --bind} names
+ * another address. Loading a model deserializes the file, so {@code /model/reload} only accepts the current
+ * model file or files inside a directory given with {@code --reload-dir}; other paths are answered with 403.
+ *
+ * Load is limited in two places. Connections are handled by a fixed pool with a bounded queue; when both
+ * are full the request is answered with 503 on the accepting thread instead of being queued. Recipes go
+ * through a {@link RecipeBatcher}, which admits a bounded number of pending recipes (again 503 beyond that)
+ * and merges concurrent requests into shared {@link RecipeProcessor#processAll} calls. Every 503 carries
+ * a {@code Retry-After} header. A batch larger than the whole admission limit could never be admitted and is
+ * answered with 413 instead.
+ *
+ * Usage: {@code Main --serve [--port N] [--bind address] [--model path] [--reload-dir dir]... [--threads N]
+ * [--handlers N] [--accept-queue N] [--max-pending N] [--batch-size N] [--batch-delay-ms N]}
+ */
+public class RecipeService implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8085;
+    private static final String DEFAULT_MODEL = "ner-model.ser.gz";
+    private static final long REQUEST_TIMEOUT_SECONDS = 60;
+    private static final long RELOAD_TIMEOUT_SECONDS = 300;
+
+    /** Tuning knobs; the defaults suit a single machine with a few cores. */
+    public static class Options {
+        public int port = DEFAULT_PORT;
+        public String bindAddress = "127.0.0.1";
+        /** Directories {@code /model/reload} may load models from, besides the current model file. */
+        public List<String> reloadDirectories = new ArrayList<>();
+        public int handlerThreads = 32;
+        public int acceptQueue = 64;
+        public int maxPendingRecipes = 256;
+        public int maxBatchSize = 32;
+        public long maxBatchDelayMillis = 2;
+    }
+
+    // Set while a request the handler pool had no room for runs on the accepting thread.
+    private static final ThreadLocal<Boolean> SHEDDING = new ThreadLocal<>();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RecipeProcessor processor;
+    private final RecipeBatcher batcher;
+    private final ThreadPoolExecutor handlers;
+    private final HttpServer server;
+    private final LatencyRecorder latencies = new LatencyRecorder(10_000);
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong modelReloads = new AtomicLong();
+    private final List<Path> reloadDirectories = new ArrayList<>();
+    private final long startNanos = System.nanoTime();
+
+    public RecipeService(RecipeProcessor processor, Options options) throws IOException {
+        this.processor = processor;
+        for (String dir : options.reloadDirectories) {
+            reloadDirectories.add(Paths.get(dir).toRealPath());
+        }
+        this.batcher = new RecipeBatcher(processor, options.maxBatchSize, options.maxBatchDelayMillis, options.maxPendingRecipes);
+        AtomicInteger count = new AtomicInteger();
+        this.handlers = new ThreadPoolExecutor(options.handlerThreads, options.handlerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(options.acceptQueue),
+                r -> {
+                    Thread t = new Thread(r, "recipe-service-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> {
+                    SHEDDING.set(Boolean.TRUE);
+                    try {
+                        r.run(); // only reads the request line and answers 503
+                    } finally {
+                        SHEDDING.remove();
+                    }
+                });
+        this.server = HttpServer.create(new InetSocketAddress(options.bindAddress, options.port), options.acceptQueue);
+        this.server.createContext("/structure", this::handleStructure);
+        this.server.createContext("/stats", this::handleStats);
+        this.server.createContext("/model/reload", this::handleReload);
+        this.server.createContext("/health", exchange -> respond(exchange, 200, "{\"status\":\"ok\"}".getBytes("UTF-8")));
+        this.server.setExecutor(handlers);
+        processor.addModelListener(version -> modelReloads.incrementAndGet());
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Recipe service listening on " + getBaseUrl());
+    }
+
+    public String getBaseUrl() {
+        InetAddress address = server.getAddress().getAddress();
+        String host = address.isAnyLocalAddress() ? "localhost"
+                : address instanceof Inet6Address ? "[" + address.getHostAddress() + "]" : address.getHostAddress();
+        return "http://" + host + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits briefly for running ones, and stops batching.
+     * The processor is left open.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        batcher.close();
+        handlers.shutdown();
+    }
+
+    private void handleStructure(HttpExchange exchange) throws IOException {
+        if (Boolean.TRUE.equals(SHEDDING.get())) {
+            shed.incrementAndGet();
+            respondError(exchange, 503, "Server busy, retry later");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respondError(exchange, 405, "Use POST");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            boolean batch = path.equals("/structure/batch");
+            if (!batch && !path.equals("/structure")) {
+                respondError(exchange, 404, "Unknown endpoint " + path);
+                return;
+            }
+
+            List<InputRecipe> recipes;
+            try (InputStream body = exchange.getRequestBody()) {
+                recipes = batch
+                        ? mapper.readValue(body, new TypeReference<List<InputRecipe>>() {})
+                        : Arrays.asList(mapper.readValue(body, InputRecipe.class));
+            } catch (JsonProcessingException e) {
+                respondError(exchange, 400, "Invalid recipe JSON: " + e.getOriginalMessage());
+                return;
+            }
+            if (recipes == null || recipes.contains(null)) {
+                respondError(exchange, 400, "Invalid recipe JSON: expected " + (batch ? "an array of recipe objects" : "a recipe object"));
+                return;
+            }
+            if (recipes.size() > batcher.getMaxPending()) {
+                // would never be admitted, so retrying doesn't help
+                respondError(exchange, 413, "Too many recipes in one request (limit " + batcher.getMaxPending() + ")");
+                return;
+            }
+
+            List<CompletableFuture<StructuredRecipe>> futures;
+            try {
+                futures = batcher.submitAll(recipes);
+            } catch (RejectedExecutionException e) {
+                respondError(exchange, 503, e.getMessage());
+                return;
+            }
+            List<StructuredRecipe> results = new ArrayList<>(futures.size());
+            try {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(REQUEST_TIMEOUT_SECONDS);
+                for (CompletableFuture<StructuredRecipe> future : futures) {
+                    results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respondError(exchange, 503, "Interrupted");
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                failures.incrementAndGet();
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                respondError(exchange, cause instanceof RejectedExecutionException ? 503 : 500,
+                        "Processing failed: " + cause.getMessage());
+                return;
+            }
+            respond(exchange, 200, mapper.writeValueAsBytes(batch ? results : results.get(0)));
+        } finally {
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    private void handleReload(HttpExchange exchange) throws IOException {
+        if (Boolean.TRUE.equals(SHEDDING.get())) {
+            shed.incrementAndGet();
+            respondError(exchange, 503, "Server busy, retry later");
+            return;
+        }
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respondError(exchange, 405, "Use POST");
+            return;
+        }
+        String path;
+        try (InputStream body = exchange.getRequestBody()) {
+            JsonNode request = mapper.readTree(body);
+            path = request == null || request.path("path").asText().isEmpty()
+                    ? processor.getModelPath() : request.path("path").asText();
+        } catch (JsonProcessingException e) {
+            respondError(exchange, 400, "Invalid JSON: " + e.getOriginalMessage());
+            return;
+        }
+        if (!reloadAllowed(path)) {
+            respondError(exchange, 403, "Not allowed to load a model from " + path
+                    + "; only the current model file or files in a --reload-dir directory");
+            return;
+        }
+        String previous = processor.getModelVersion();
+        try {
+            String version = processor.reloadModel(path).get(RELOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            ObjectNode response = mapper.createObjectNode();
+            response.put("modelPath", path);
+            response.put("modelVersion", version);
+            response.put("changed", !version.equals(previous));
+            respond(exchange, 200, mapper.writeValueAsBytes(response));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respondError(exchange, 503, "Interrupted");
+        } catch (ExecutionException | TimeoutException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            respondError(exchange, 500, "Model reload failed, the previous model stays in use: " + cause);
+        }
+    }
+
+    // Resolves links and ".." first, so a path can't leave an allowed directory.
+    private boolean reloadAllowed(String path) {
+        String current = processor.getModelPath();
+        if (path.equals(current)) {
+            return true;
+        }
+        try {
+            Path requested = Paths.get(path).toRealPath();
+            for (Path dir : reloadDirectories) {
+                if (requested.startsWith(dir)) {
+                    return true;
+                }
+            }
+            return requested.equals(Paths.get(current).toRealPath());
+        } catch (IOException | InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        if (Boolean.TRUE.equals(SHEDDING.get())) {
+            shed.incrementAndGet();
+            respondError(exchange, 503, "Server busy, retry later");
+            return;
+        }
+        respond(exchange, 200, mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(stats()));
+    }
+
+    /**
+     * Snapshot of the service counters, as served by {@code /stats}.
+     */
+    public ObjectNode stats() {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("uptimeSeconds", (System.nanoTime() - startNanos) / 1_000_000_000L);
+        ObjectNode model = node.putObject("model");
+        model.put("path", processor.getModelPath());
+        model.put("version", processor.getModelVersion());
+        model.put("reloads", modelReloads.get());
+        ObjectNode requests = node.putObject("requests");
+        long[] sorted = latencies.snapshot();
+        requests.put("count", latencies.count());
+        requests.put("shed", shed.get());
+        requests.put("rejected", batcher.getRejectedCount());
+        requests.put("failed", failures.get());
+        requests.put("latencyWindow", sorted.length);
+        requests.put("p50Millis", percentileMillis(sorted, 0.50));
+        requests.put("p90Millis", percentileMillis(sorted, 0.90));
+        requests.put("p99Millis", percentileMillis(sorted, 0.99));
+        requests.put("maxMillis", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        ObjectNode batching = node.putObject("batching");
+        batching.put("batches", batcher.getBatchCount());
+        batching.put("recipes", batcher.getRecipeCount());
+        batching.put("averageBatchSize", batcher.getAverageBatchSize());
+        batching.put("duplicatesShared", batcher.getDuplicateCount());
+        batching.put("pendingRecipes", batcher.getPendingCount());
+        batching.put("queuedConnections", handlers.getQueue().size());
+        SentenceCache cache = processor.getSentenceCache();
+        if (cache != null) {
+            SentenceCache.Stats cacheStats = cache.getStats();
+            ObjectNode sentences = node.putObject("sentenceCache");
+            sentences.put("hits", cacheStats.hits);
+            sentences.put("misses", cacheStats.misses);
+            sentences.put("hitRate", cacheStats.hitRate());
+        }
+        return node;
+    }
+
+    private static double percentileMillis(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private void respondError(HttpExchange exchange, int status, String message) throws IOException {
+        ObjectNode error = mapper.createObjectNode();
+        error.put("error", message);
+        if (status == 503) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        respond(exchange, status, mapper.writeValueAsBytes(error));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Keeps the latencies of the most recent requests for percentile reporting.
+     */
+    private static final class LatencyRecorder {
+        private final long[] window;
+        private long count;
+
+        LatencyRecorder(int size) {
+            this.window = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            window[(int) (count++ % window.length)] = nanos;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        // The recorded latencies, sorted.
+        long[] snapshot() {
+            long[] copy;
+            synchronized (this) {
+                copy = Arrays.copyOf(window, (int) Math.min(count, window.length));
+            }
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * @param args The arguments after {@code --serve}.
+     * @return The process exit code, once the service fails to start; otherwise it runs until the JVM exits.
+     */
+    public static int run(String[] args) {
+        Options options = new Options();
+        String modelPath = DEFAULT_MODEL;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--port":           options.port = Integer.parseInt(value); break;
+                    case "--bind":           options.bindAddress = value; break;
+                    case "--reload-dir":     options.reloadDirectories.add(value); break;
+                    case "--model":          modelPath = value; break;
+                    case "--threads":        threads = Math.max(1, Integer.parseInt(value)); break;
+                    case "--handlers":       options.handlerThreads = Math.max(1, Integer.parseInt(value)); break;
+                    case "--accept-queue":   options.acceptQueue = Math.max(1, Integer.parseInt(value)); break;
+                    case "--max-pending":    options.maxPendingRecipes = Math.max(1, Integer.parseInt(value)); break;
+                    case "--batch-size":     options.maxBatchSize = Math.max(1, Integer.parseInt(value)); break;
+                    case "--batch-delay-ms": options.maxBatchDelayMillis = Math.max(0, Long.parseLong(value)); break;
+                    default: throw new IllegalArgumentException(arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Usage: Main --serve [--port N] [--bind address] [--model path] [--reload-dir dir]..."
+                    + " [--threads N] [--handlers N] [--accept-queue N] [--max-pending N] [--batch-size N]"
+                    + " [--batch-delay-ms N]");
+            return 2;
+        }
+
+        try {
+            System.out.println("Loading NER model " + modelPath + "...");
+            RecipeProcessor processor = new RecipeProcessor(modelPath, threads);
+            RecipeService service = new RecipeService(processor, options);
+            Main.watchModelFile(processor, modelPath);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                System.out.println("Shutting down; final stats:");
+                System.out.println(service.stats().toPrettyString());
+                service.close();
+                processor.close();
+            }));
+            service.start();
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not start recipe service: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+}
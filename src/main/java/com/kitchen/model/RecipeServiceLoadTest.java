@@ -0,0 +1,207 @@
+package com.kitchen.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kitchen.model.processing.RecipeProcessor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for {@link RecipeService}: each client thread posts random corpus recipes
+ * (singly or in batches) and sends the next request as soon as the previous one is answered. Reports
+ * client-side latency percentiles, throughput and status codes, followed by the server's own {@code /stats}.
+ *
+ * Without {@code --url} the service is started in-process with the given model on a free port. Its sentence
+ * cache is off unless {@code --sentence-cache} sizes it: the clients replay the same corpus over and over, so
+ * with a cache the run would mostly measure cache hits.
+ *
+ * Usage: {@code RecipeServiceLoadTest [recipeFile] [--url http://host:port] [--model path] [--threads N]
+ * [--clients N] [--seconds N] [--batch-size N] [--sentence-cache N]}
+ */
+public class RecipeServiceLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String recipeFile = "src/main/resources/complete_indian_recipes.json";
+        String url = null;
+        String modelPath = "src/main/resources/ner-model.ser.gz";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int clients = 8;
+        int seconds = 20;
+        int batchSize = 1;
+        int sentenceCacheSize = 0;
+        for (int i = 0; i < args.length; i++) {
+            if ("--url".equals(args[i]) && i + 1 < args.length) {
+                url = args[++i];
+            } else if ("--model".equals(args[i]) && i + 1 < args.length) {
+                modelPath = args[++i];
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--clients".equals(args[i]) && i + 1 < args.length) {
+                clients = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--seconds".equals(args[i]) && i + 1 < args.length) {
+                seconds = Integer.parseInt(args[++i]);
+            } else if ("--batch-size".equals(args[i]) && i + 1 < args.length) {
+                batchSize = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--sentence-cache".equals(args[i]) && i + 1 < args.length) {
+                sentenceCacheSize = Math.max(0, Integer.parseInt(args[++i]));
+            } else {
+                recipeFile = args[i];
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<byte[]> bodies = new ArrayList<>();
+        List<InputRecipe> recipes;
+        try (InputStream in = Files.newInputStream(Paths.get(recipeFile))) {
+            recipes = Main.readRecipes(in);
+        }
+        recipes.removeIf(r -> r.getInstructions() == null || r.getInstructions().isEmpty());
+        for (InputRecipe recipe : recipes) {
+            bodies.add(mapper.writeValueAsBytes(recipe));
+        }
+
+        RecipeProcessor processor = null;
+        RecipeService service = null;
+        if (url == null) {
+            processor = new RecipeProcessor(modelPath, threads, sentenceCacheSize);
+            RecipeService.Options options = new RecipeService.Options();
+            options.port = 0;
+            service = new RecipeService(processor, options);
+            service.start();
+            url = service.getBaseUrl();
+        }
+        String endpoint = url + (batchSize == 1 ? "/structure" : "/structure/batch");
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        AtomicLong recipesDone = new AtomicLong();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threadsList = new ArrayList<>();
+        final int size = batchSize;
+        for (int c = 0; c < clients; c++) {
+            Thread client = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    byte[] body = size == 1 ? pick(bodies) : batchBody(bodies, size);
+                    long t0 = System.nanoTime();
+                    int status;
+                    try {
+                        status = post(endpoint, body);
+                    } catch (IOException e) {
+                        status = -1;
+                    }
+                    latencies.add(System.nanoTime() - t0);
+                    statuses.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+                    if (status == 200) {
+                        recipesDone.addAndGet(size);
+                    } else if (status == 503) {
+                        sleepQuietly(50); // back off as Retry-After asks, if more eagerly
+                    }
+                }
+            }, "load-client-" + c);
+            client.start();
+            threadsList.add(client);
+        }
+        for (Thread client : threadsList) {
+            client.join();
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.println("------------------------------------------");
+        System.out.printf("%d clients, batch size %d, %d s against %s%n", clients, batchSize, seconds, endpoint);
+        System.out.println("Status codes: " + new TreeMap<>(statuses));
+        System.out.printf("Requests: %d (%.1f/s), recipes structured: %d (%.1f/s)%n",
+                sorted.size(), sorted.size() / (double) seconds, recipesDone.get(), recipesDone.get() / (double) seconds);
+        if (!sorted.isEmpty()) {
+            System.out.printf("Client latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.90) / 1e6,
+                    percentile(sorted, 0.99) / 1e6, sorted.get(sorted.size() - 1) / 1e6);
+        }
+        System.out.println("Server stats: " + get(url + "/stats"));
+        System.out.println("------------------------------------------");
+
+        if (service != null) {
+            service.close();
+            processor.close();
+        }
+    }
+
+    private static byte[] pick(List<byte[]> bodies) {
+        return bodies.get(ThreadLocalRandom.current().nextInt(bodies.size()));
+    }
+
+    private static byte[] batchBody(List<byte[]> bodies, int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            byte[] body = pick(bodies);
+            out.write(body, 0, body.length);
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private static int post(String endpoint, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        InputStream response = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (response != null) {
+            try (InputStream in = response) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // drain so the connection can be reused
+                }
+            }
+        }
+        return status;
+    }
+
+    private static String get(String address) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,4 +1,7 @@
 package com.kitchen.model;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -13,7 +16,12 @@ public class RecipeStep {
     private String stateInfo; 
     private String parameters;
 
-    public RecipeStep(int step, String action, List<StepIngredient> ingredients, String time, String temperature, String tool, String quantityInfo, String stateInfo, String parameters) {
+    @JsonCreator
+    public RecipeStep(@JsonProperty("step") int step, @JsonProperty("action") String action,
+                      @JsonProperty("ingredients") List<StepIngredient> ingredients, @JsonProperty("time") String time,
+                      @JsonProperty("temperature") String temperature, @JsonProperty("tool") String tool,
+                      @JsonProperty("quantityInfo") String quantityInfo, @JsonProperty("stateInfo") String stateInfo,
+                      @JsonProperty("parameters") String parameters) {
         this.step = step;
         this.action = action;
         this.ingredients = ingredients;
@@ -0,0 +1,209 @@
+package com.kitchen.model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures application startup in fresh JVMs:
+ * <ul>
+ *   <li>{@code no-cds}: class data sharing off ({@code -Xshare:off}), every class loaded and verified from the jars;</li>
+ *   <li>{@code cold}: the JDK's default CDS archive only, i.e. what {@code java -jar} does today;</li>
+ *   <li>{@code appcds}: with the application archive built by the {@code appcds} Maven profile (or {@code --create-archive}).</li>
+ * </ul>
+ * Each run is a short headless batch job ({@code Main --batch} on the first few recipes, one thread), timed from
+ * process launch to exit; the model-load time is taken from the batch report. Variants are interleaved round by
+ * round and the first round is discarded, so disk cache and CPU frequency affect all variants alike.
+ *
+ * With {@code --csv} the medians are appended to a CSV file together with {@code --label} (e.g. the release),
+ * and compared with the previous row of the same variant, so regressions show up from release to release.
+ * Exits with 2 on an unknown option and 1 if the training run or a measured run fails, so a CI job notices.
+ *
+ * Usage: {@code StartupBenchmark [--classpath cp] [--archive file] [--create-archive] [--recipes file]
+ * [--limit N] [--rounds N] [--label name] [--csv file]}
+ */
+public class StartupBenchmark {
+
+    private static final Pattern MODEL_LOAD = Pattern.compile("model load (\\d+) ms");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String classpath = "target/demo-1.0-SNAPSHOT-jar-with-dependencies.jar";
+        String archive = "target/app-cds.jsa";
+        boolean createArchive = false;
+        String recipes = "src/main/resources/complete_indian_recipes.json";
+        int limit = 5;
+        int rounds = 6;
+        String label = "dev";
+        String csv = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--create-archive".equals(args[i])) {
+                createArchive = true;
+            } else if ("--classpath".equals(args[i]) && i + 1 < args.length) {
+                classpath = args[++i];
+            } else if ("--archive".equals(args[i]) && i + 1 < args.length) {
+                archive = args[++i];
+            } else if ("--recipes".equals(args[i]) && i + 1 < args.length) {
+                recipes = args[++i];
+            } else if ("--limit".equals(args[i]) && i + 1 < args.length) {
+                limit = Integer.parseInt(args[++i]);
+            } else if ("--rounds".equals(args[i]) && i + 1 < args.length) {
+                rounds = Math.max(2, Integer.parseInt(args[++i]));
+            } else if ("--label".equals(args[i]) && i + 1 < args.length) {
+                label = args[++i];
+            } else if ("--csv".equals(args[i]) && i + 1 < args.length) {
+                csv = args[++i];
+            } else {
+                System.err.println("Unknown option " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        List<String> batchArgs = Arrays.asList("com.kitchen.model.Main", "--batch", recipes, "--limit", String.valueOf(limit),
+                "--threads", "1", "--output", new File(System.getProperty("java.io.tmpdir"), "startup-benchmark.jsonl").getPath());
+        if (createArchive || !new File(archive).isFile()) {
+            System.out.println("Creating AppCDS archive " + archive + " from a training run...");
+            Run training = launch(classpath, Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive), batchArgs);
+            if (training.exitCode != 0 || !new File(archive).isFile()) {
+                System.err.println("Training run failed (exit " + training.exitCode + "); AppCDS needs JDK 13+ and jar-only classpaths.");
+                System.exit(1);
+            }
+        }
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("no-cds", Collections.singletonList("-Xshare:off"));
+        variants.put("cold", Collections.<String>emptyList());
+        variants.put("appcds", Arrays.asList("-XX:SharedArchiveFile=" + archive, "-Xshare:auto"));
+
+        Map<String, List<Run>> runs = new LinkedHashMap<>();
+        for (String variant : variants.keySet()) {
+            runs.put(variant, new ArrayList<>());
+        }
+        for (int round = 0; round < rounds; round++) {
+            List<String> order = new ArrayList<>(variants.keySet());
+            Collections.rotate(order, round); // vary which variant goes first
+            for (String variant : order) {
+                Run run = launch(classpath, variants.get(variant), batchArgs);
+                if (run.exitCode != 0) {
+                    System.err.println(variant + " run failed with exit code " + run.exitCode);
+                    System.exit(1);
+                }
+                if (round > 0) { // the first round warms the OS file cache
+                    runs.get(variant).add(run);
+                }
+            }
+        }
+
+        System.out.println("------------------------------------------");
+        System.out.printf("Startup (%s, %d rounds, batch of %d recipes, Java %s)%n", label, rounds - 1, limit,
+                System.getProperty("java.version"));
+        Map<String, String[]> previous = csv == null ? Collections.<String, String[]>emptyMap() : readLastRows(Paths.get(csv));
+        List<String> csvRows = new ArrayList<>();
+        for (Map.Entry<String, List<Run>> entry : runs.entrySet()) {
+            List<Long> wall = new ArrayList<>();
+            List<Long> modelLoad = new ArrayList<>();
+            for (Run run : entry.getValue()) {
+                wall.add(run.wallMillis);
+                modelLoad.add(run.modelLoadMillis);
+            }
+            long wallMedian = median(wall);
+            long modelMedian = median(modelLoad);
+            String comparison = "";
+            String[] last = previous.get(entry.getKey());
+            if (last != null) {
+                long lastWall = Long.parseLong(last[4]);
+                comparison = String.format("  (%+.1f%% vs %s)", 100.0 * (wallMedian - lastWall) / lastWall, last[1]);
+            }
+            System.out.printf("%-7s wall: median %5d ms, min %5d ms | model load: median %5d ms%s%n", entry.getKey(),
+                    wallMedian, Collections.min(wall), modelMedian, comparison);
+            csvRows.add(String.join(",", LocalDate.now().toString(), label, System.getProperty("java.version"),
+                    entry.getKey(), String.valueOf(wallMedian), String.valueOf(Collections.min(wall)), String.valueOf(modelMedian)));
+        }
+        System.out.println("------------------------------------------");
+
+        if (csv != null) {
+            Path csvPath = Paths.get(csv);
+            boolean header = !Files.exists(csvPath);
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csvPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                if (header) {
+                    out.println("date,label,java,variant,wall_median_ms,wall_min_ms,model_load_median_ms");
+                }
+                csvRows.forEach(out::println);
+            }
+            System.out.println("Appended results to " + csv);
+        }
+    }
+
+    private static final class Run {
+        final int exitCode;
+        final long wallMillis;
+        final long modelLoadMillis;
+
+        Run(int exitCode, long wallMillis, long modelLoadMillis) {
+            this.exitCode = exitCode;
+            this.wallMillis = wallMillis;
+            this.modelLoadMillis = modelLoadMillis;
+        }
+    }
+
+    private static Run launch(String classpath, List<String> jvmFlags, List<String> mainAndArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx1g"); // same heap sizing in every run
+        command.addAll(jvmFlags);
+        command.add("-cp");
+        command.add(classpath);
+        command.addAll(mainAndArgs);
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long modelLoad = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = MODEL_LOAD.matcher(line);
+                if (matcher.find()) {
+                    modelLoad = Long.parseLong(matcher.group(1));
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        return new Run(exitCode, (System.nanoTime() - start) / 1_000_000, modelLoad);
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    // Last row per variant: date,label,java,variant,wall_median_ms,...
+    private static Map<String, String[]> readLastRows(Path csv) throws IOException {
+        Map<String, String[]> last = new LinkedHashMap<>();
+        if (Files.exists(csv)) {
+            for (String line : Files.readAllLines(csv, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(",");
+                if (fields.length >= 7 && !"date".equals(fields[0])) {
+                    last.put(fields[3], fields);
+                }
+            }
+        }
+        return last;
+    }
+}
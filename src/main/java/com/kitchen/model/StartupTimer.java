@@ -0,0 +1,34 @@
+package com.kitchen.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs how long after startup the application reaches each milestone ("first window", "first result", ...).
+ * Each milestone is logged only the first time it is reached; safe to call from any thread.
+ */
+public final class StartupTimer {
+
+    private static final long MAIN_START_NANOS = System.nanoTime();
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Set<String> reached = ConcurrentHashMap.newKeySet();
+
+    private StartupTimer() {
+    }
+
+    /** Called first thing in main so the clock starts there. */
+    static void start() {
+        // the static fields are initialized on first use
+    }
+
+    /**
+     * Logs the milestone if it wasn't reached before.
+     */
+    public static void mark(String milestone) {
+        if (reached.add(milestone)) {
+            System.out.printf("[startup] %s after %d ms (%d ms since JVM start)%n", milestone,
+                    (System.nanoTime() - MAIN_START_NANOS) / 1_000_000, System.currentTimeMillis() - JVM_START_MILLIS);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.kitchen.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 public class StepIngredient {
     private String name;
     
 
-    public StepIngredient(String name) {
+    @JsonCreator
+    public StepIngredient(@JsonProperty("name") String name) {
         this.name = name;
     }
 
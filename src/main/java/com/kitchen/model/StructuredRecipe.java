@@ -1,13 +1,17 @@
 package com.kitchen.model;
 
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.util.List;
 
 public class StructuredRecipe {
     private String name; 
     private List<RecipeStep> steps;
 
-    public StructuredRecipe(String name, List<RecipeStep> steps) {
+    @JsonCreator
+    public StructuredRecipe(@JsonProperty("name") String name, @JsonProperty("steps") List<RecipeStep> steps) {
         this.name = name;
         this.steps = steps;
     }
@@ -0,0 +1,153 @@
+package com.kitchen.model.processing;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns the CRF's BIO answers for one sentence into {@link EntitySpan}s plus the remaining "parameter" words.
+ *
+ * A {@code B-} tag starts an entity and {@code I-} tags of the same type extend it; an {@code I-} tag that
+ * doesn't continue an entity of its type starts a new one (with a warning). ACTION entities are always a
+ * single token. Entities of types not in {@link EntityType} are dropped. Outside ({@code O}) tokens become
+ * parameter words unless they are punctuation or stopwords.
+ *
+ * Tags are parsed once per distinct answer string and reused, and punctuation/stopwords are checked
+ * against precomputed sets, so decoding allocates only the span objects and their text. Instances are
+ * immutable after construction and safe to share between threads.
+ */
+public final class BioSpanDecoder {
+
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "is", "are", "was", "were", "in", "on", "at", "to", "of", "and", "or", "but",
+            "it", "this", "that", "they", "with", "for", "will", "be", "can", "i", "you", "he", "she"));
+    private static final int MAX_STOPWORD_LENGTH = 4;
+
+    private static final char BEGIN = 'B';
+    private static final char INSIDE = 'I';
+    private static final char OUTSIDE = 'O';
+
+    // A parsed answer string; typeName is kept so unknown types still compare by name.
+    private static final class Tag {
+        final char prefix;
+        final String typeName;
+        final EntityType type;
+
+        Tag(String answer) {
+            this.prefix = answer.startsWith("B-") ? BEGIN : (answer.startsWith("I-") ? INSIDE : OUTSIDE);
+            this.typeName = answer.length() > 2 ? answer.substring(2) : null;
+            this.type = EntityType.fromName(typeName);
+        }
+    }
+
+    private final Map<String, Tag> tags = new HashMap<>();
+
+    /**
+     * @param labels The model's answer labels (e.g. its class index), parsed up front.
+     */
+    public BioSpanDecoder(Collection<String> labels) {
+        for (String label : labels) {
+            tags.put(label, new Tag(label));
+        }
+    }
+
+    private Tag tag(String answer) {
+        Tag tag = tags.get(answer);
+        return tag != null ? tag : new Tag(answer);
+    }
+
+    /**
+     * Decodes one tagged sentence.
+     *
+     * @param tokens       Tokens with {@link CoreAnnotations.AnswerAnnotation} set.
+     * @param spans        Receives the entities in sentence order.
+     * @param outsideWords Receives the original text of outside tokens that are neither punctuation nor stopwords.
+     */
+    public void decode(List<CoreLabel> tokens, List<EntitySpan> spans, List<String> outsideWords) {
+        int start = -1;      // first token of the open entity, -1 if none
+        Tag open = null;
+        int n = tokens.size();
+        for (int i = 0; i < n; i++) {
+            CoreLabel token = tokens.get(i);
+            String word = token.originalText();
+            Tag tag = tag(token.get(CoreAnnotations.AnswerAnnotation.class));
+
+            if (tag.prefix != INSIDE || (open != null && !open.typeName.equals(tag.typeName))) {
+                if (open != null) {
+                    emit(tokens, open, start, i, spans);
+                    open = null;
+                }
+            }
+            if (tag.prefix == BEGIN) {
+                open = begin(tokens, tag, i, spans);
+                start = i;
+            } else if (tag.prefix == INSIDE) {
+                if (open == null || !open.typeName.equals(tag.typeName)) {
+                    System.err.printf("Warning: Unexpected I-%s tag for '%s' without preceding B-%s. Treating as B-%s.\n",
+                                      tag.typeName, word, tag.typeName, tag.typeName);
+                    open = begin(tokens, tag, i, spans);
+                    start = i;
+                }
+            } else if (!isPunctuation(word) && !isStopword(word)) {
+                outsideWords.add(word);
+            }
+        }
+        if (open != null) {
+            emit(tokens, open, start, n, spans);
+        }
+    }
+
+    // Opens an entity at token i; ACTION entities are emitted right away and never stay open.
+    private static Tag begin(List<CoreLabel> tokens, Tag tag, int i, List<EntitySpan> spans) {
+        if (tag.type == EntityType.ACTION) {
+            emit(tokens, tag, i, i + 1, spans);
+            return null;
+        }
+        return tag.typeName == null ? null : tag;
+    }
+
+    private static void emit(List<CoreLabel> tokens, Tag tag, int start, int end, List<EntitySpan> spans) {
+        if (tag.type == null) {
+            return; // type unknown to the application
+        }
+        String text;
+        if (end - start == 1) {
+            text = tokens.get(start).originalText().trim();
+        } else {
+            StringBuilder sb = new StringBuilder(tokens.get(start).originalText());
+            for (int k = start + 1; k < end; k++) {
+                sb.append(' ').append(tokens.get(k).originalText());
+            }
+            text = sb.toString().trim();
+        }
+        int sentenceBegin = tokens.get(0).beginPosition();
+        spans.add(new EntitySpan(tag.type, start, end, tokens.get(start).beginPosition() - sentenceBegin,
+                tokens.get(end - 1).endPosition() - sentenceBegin, text));
+    }
+
+    static boolean isPunctuation(String word) {
+        int length = word.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            char c = word.charAt(k);
+            if (c != '.' && c != ',' && c != ';' && c != '!' && c != '?' && c != ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isStopword(String word) {
+        return word.length() <= MAX_STOPWORD_LENGTH && STOPWORDS.contains(word.toLowerCase(Locale.ROOT));
+    }
+}
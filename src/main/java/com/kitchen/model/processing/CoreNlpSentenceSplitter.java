@@ -0,0 +1,51 @@
+package com.kitchen.model.processing;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Sentence splitting with a CoreNLP {@code tokenize, ssplit} pipeline, as the NER training data was produced.
+ * The pipeline is not shared between threads; create one instance per thread.
+ */
+public class CoreNlpSentenceSplitter implements SentenceSplitter {
+
+    private final StanfordCoreNLP pipeline;
+
+    public CoreNlpSentenceSplitter() {
+        Properties props = new Properties();
+        props.setProperty("annotators", "tokenize, ssplit");
+        this.pipeline = new StanfordCoreNLP(props);
+    }
+
+    @Override
+    public List<List<CoreLabel>> split(String text) {
+        return split(annotate(text));
+    }
+
+    /**
+     * Runs the pipeline; the sentences keep their {@link CoreAnnotations.TextAnnotation}.
+     */
+    List<CoreMap> annotate(String text) {
+        Annotation document = new Annotation(text);
+        pipeline.annotate(document);
+        return document.get(CoreAnnotations.SentencesAnnotation.class);
+    }
+
+    private static List<List<CoreLabel>> split(List<CoreMap> sentences) {
+        List<List<CoreLabel>> split = new ArrayList<>(sentences.size());
+        for (CoreMap sentence : sentences) {
+            List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+            if (tokens != null && !tokens.isEmpty()) {
+                split.add(tokens);
+            }
+        }
+        return split;
+    }
+}
@@ -0,0 +1,58 @@
+package com.kitchen.model.processing;
+
+/**
+ * One decoded entity: its type, the tokens it covers and where it sits in its sentence.
+ */
+public final class EntitySpan {
+    private final EntityType type;
+    private final int tokenStart;
+    private final int tokenEnd;
+    private final int charStart;
+    private final int charEnd;
+    private final String text;
+
+    /**
+     * @param tokenStart Index of the first token in the sentence.
+     * @param tokenEnd   Index after the last token.
+     * @param charStart  Character offset of the first token, relative to the start of the sentence.
+     * @param charEnd    Character offset after the last token, relative to the start of the sentence.
+     * @param text       The tokens' original text joined by single spaces.
+     */
+    public EntitySpan(EntityType type, int tokenStart, int tokenEnd, int charStart, int charEnd, String text) {
+        this.type = type;
+        this.tokenStart = tokenStart;
+        this.tokenEnd = tokenEnd;
+        this.charStart = charStart;
+        this.charEnd = charEnd;
+        this.text = text;
+    }
+
+    public EntityType getType() {
+        return type;
+    }
+
+    public int getTokenStart() {
+        return tokenStart;
+    }
+
+    public int getTokenEnd() {
+        return tokenEnd;
+    }
+
+    public int getCharStart() {
+        return charStart;
+    }
+
+    public int getCharEnd() {
+        return charEnd;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return type + "[" + tokenStart + "," + tokenEnd + ")='" + text + "'";
+    }
+}
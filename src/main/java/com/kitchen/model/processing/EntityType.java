@@ -0,0 +1,30 @@
+package com.kitchen.model.processing;
+
+/**
+ * Entity types predicted by the recipe NER model, i.e. the part of a BIO tag after {@code B-} / {@code I-}.
+ */
+public enum EntityType {
+    INGREDIENT,
+    ACTION,
+    TIME,
+    TEMP,
+    TOOL,
+    QUANTITY,
+    UNIT,
+    STATE;
+
+    /**
+     * @return The type named {@code name}, or {@code null} if the model produced a type this code doesn't know.
+     */
+    public static EntityType fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (EntityType type : values()) {
+            if (type.name().equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.kitchen.model.processing;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads a {@link RecipeProcessor}'s model when its file changes on disk. The file may be replaced (renamed
+ * into place) or rewritten in place; in the latter case the reload waits until the file has stopped changing
+ * for {@link #SETTLE_MILLIS}, so a model that is still being written isn't loaded half-way. A file that can't
+ * be loaded leaves the current model in use and is retried on the next change.
+ *
+ * When the processor loads its model from another path (e.g. through the service's reload endpoint), the
+ * watcher follows it to that file and ignores the old one, so touching the old file can't swap the old model
+ * back in. A model loaded from the classpath ends the watching.
+ */
+public class ModelFileWatcher implements AutoCloseable {
+
+    static final long SETTLE_MILLIS = 1000;
+
+    private final RecipeProcessor processor;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile Path modelFile; // null once there is no file to watch
+    private WatchKey key;
+    private boolean closed;
+
+    /**
+     * Starts watching {@code modelFile} on a daemon thread.
+     */
+    public ModelFileWatcher(RecipeProcessor processor, Path modelFile) throws IOException {
+        this.processor = processor;
+        this.modelFile = modelFile.toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.key = register(this.modelFile);
+        processor.addModelListener(version -> follow(processor.getModelPath()));
+        this.thread = new Thread(this::watch, "model-file-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        System.out.println("Watching " + this.modelFile + " for model updates.");
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!changed(watchService.take())) {
+                    continue;
+                }
+                // Wait for the writes to settle: more events restart the wait.
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key);
+                }
+                Path file = modelFile;
+                if (file == null || !stable(file)) {
+                    continue; // still changing without events (e.g. on a network file system); wait for the next one
+                }
+                try {
+                    processor.reloadModel(file.toString()).join();
+                } catch (CompletionException e) {
+                    // already reported by reloadModel; the next change retries
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        } catch (RuntimeException e) {
+            System.err.println("Model file watcher stopped: " + e);
+        }
+    }
+
+    private WatchKey register(Path file) throws IOException {
+        return file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    // Switches to the processor's current model file after it loaded one from elsewhere.
+    private synchronized void follow(String modelPath) {
+        Path file = Paths.get(modelPath).toAbsolutePath();
+        if (closed || file.equals(modelFile)) {
+            return;
+        }
+        try {
+            if (!Files.isRegularFile(file)) {
+                throw new IOException("not a file");
+            }
+            WatchKey newKey = register(file);
+            if (key != null && !key.equals(newKey)) {
+                key.cancel(); // the same directory gives the same key
+            }
+            key = newKey;
+            modelFile = file;
+            System.out.println("Watching " + file + " for model updates.");
+        } catch (IOException | InvalidPathException e) {
+            if (key != null) {
+                key.cancel();
+                key = null;
+            }
+            modelFile = null;
+            System.out.println("Stopped watching for model updates; the model is now loaded from " + modelPath);
+        }
+    }
+
+    // Whether the key had events for the current model file; resets the key.
+    private boolean changed(WatchKey key) {
+        Path file = modelFile;
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (file != null && key.watchable().equals(file.getParent())
+                    && (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(context))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private static boolean stable(Path file) throws InterruptedException {
+        try {
+            long size = Files.size(file);
+            FileTime modified = Files.getLastModifiedTime(file);
+            Thread.sleep(SETTLE_MILLIS / 4);
+            return size > 0 && size == Files.size(file) && modified.equals(Files.getLastModifiedTime(file));
+        } catch (IOException e) {
+            return false; // deleted or being replaced
+        }
+    }
+
+    /**
+     * Stops watching; a reload that already started still completes.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,228 @@
+package com.kitchen.model.processing;
+
+import com.kitchen.model.InputRecipe;
+import com.kitchen.model.StructuredRecipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects recipes submitted concurrently by independent callers (e.g. HTTP requests) into micro-batches
+ * for {@link RecipeProcessor#processAll}.
+ *
+ * A single batching thread takes the first waiting recipe, then keeps collecting for at most
+ * {@code maxDelayMillis} or until {@code maxBatchSize} recipes are waiting. Identical recipes in a batch are
+ * processed once. Only one batch runs at a time; while it runs the next one fills up, so batches grow with
+ * the load and the worker pool stays busy.
+ *
+ * Admission is bounded: at most {@code maxPending} recipes may be waiting or running, and submissions
+ * beyond that are rejected right away with a {@link RejectedExecutionException} rather than queued. A batch
+ * that fails (including one with a recipe that can't be hashed) fails its callers' futures; the batching thread
+ * keeps running.
+ */
+public class RecipeBatcher implements AutoCloseable {
+
+    private static final class Pending {
+        final InputRecipe recipe;
+        final CompletableFuture<StructuredRecipe> result = new CompletableFuture<>();
+
+        Pending(InputRecipe recipe) {
+            this.recipe = recipe;
+        }
+    }
+
+    private final RecipeProcessor processor;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int maxPending;
+    private final Semaphore permits;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread batchThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong recipes = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param maxBatchSize   Most recipes handed to one {@code processAll} call.
+     * @param maxDelayMillis How long a recipe may wait for others to join its batch.
+     * @param maxPending     Most recipes admitted (waiting or being processed) at any time.
+     */
+    public RecipeBatcher(RecipeProcessor processor, int maxBatchSize, long maxDelayMillis, int maxPending) {
+        this.processor = processor;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxPending);
+        this.batchThread = new Thread(this::batchLoop, "recipe-batcher");
+        this.batchThread.setDaemon(true);
+        this.batchThread.start();
+    }
+
+    /**
+     * Queues one recipe.
+     *
+     * @throws RejectedExecutionException If the batcher is full or closed.
+     */
+    public CompletableFuture<StructuredRecipe> submit(InputRecipe recipe) {
+        List<CompletableFuture<StructuredRecipe>> results = submitAll(Collections.singletonList(recipe));
+        return results.get(0);
+    }
+
+    /**
+     * Queues several recipes; they are admitted all together or not at all.
+     *
+     * @return One future per recipe, in order.
+     * @throws RejectedExecutionException If there is no room for all of them right now, or the batcher is closed.
+     * @throws IllegalArgumentException    If there are more of them than the batcher ever admits at once.
+     * @throws NullPointerException        If one of them is null.
+     */
+    public List<CompletableFuture<StructuredRecipe>> submitAll(List<InputRecipe> inputRecipes) {
+        if (!running) {
+            throw new RejectedExecutionException("Batcher is closed");
+        }
+        if (inputRecipes.contains(null)) {
+            throw new NullPointerException("Null recipe");
+        }
+        if (inputRecipes.size() > maxPending) {
+            rejected.addAndGet(inputRecipes.size());
+            throw new IllegalArgumentException("Too many recipes in one request (limit " + maxPending + ")");
+        }
+        if (!permits.tryAcquire(inputRecipes.size())) {
+            rejected.addAndGet(inputRecipes.size());
+            throw new RejectedExecutionException("Too many recipes pending (limit " + maxPending + ")");
+        }
+        List<CompletableFuture<StructuredRecipe>> results = new ArrayList<>(inputRecipes.size());
+        for (InputRecipe recipe : inputRecipes) {
+            Pending pending = new Pending(recipe);
+            results.add(pending.result);
+            queue.add(pending);
+        }
+        return results;
+    }
+
+    /** Most recipes admitted at once, and so the largest batch {@link #submitAll} accepts. */
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /** Recipes admitted and not yet finished. */
+    public int getPendingCount() {
+        return maxPending - permits.availablePermits();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getRecipeCount() {
+        return recipes.get();
+    }
+
+    /** Recipes that were answered from an identical recipe in the same batch. */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public double getAverageBatchSize() {
+        long n = batches.get();
+        return n == 0 ? 0 : (double) recipes.get() / n;
+    }
+
+    private void batchLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Pending next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                for (Pending pending : batch) {
+                    pending.result.completeExceptionally(new RejectedExecutionException("Batcher closed"));
+                }
+                permits.release(batch.size());
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Always completes every future in the batch and releases its permits, whatever goes wrong.
+    private void runBatch(List<Pending> batch) {
+        try {
+            // Identical recipes (same name and instructions) share one result.
+            Map<String, List<Pending>> byRecipe = new LinkedHashMap<>();
+            for (Pending pending : batch) {
+                byRecipe.computeIfAbsent(StructuredRecipeCache.recipeHash(pending.recipe), k -> new ArrayList<>()).add(pending);
+            }
+            List<InputRecipe> unique = new ArrayList<>(byRecipe.size());
+            for (List<Pending> group : byRecipe.values()) {
+                unique.add(group.get(0).recipe);
+            }
+            batches.incrementAndGet();
+            recipes.addAndGet(batch.size());
+            duplicates.addAndGet(batch.size() - unique.size());
+            List<StructuredRecipe> results = processor.processAll(unique);
+            int i = 0;
+            for (List<Pending> group : byRecipe.values()) {
+                StructuredRecipe result = results.get(i++);
+                for (Pending pending : group) {
+                    pending.result.complete(result);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (Pending pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        } finally {
+            permits.release(batch.size());
+        }
+    }
+
+    /**
+     * Stops batching; recipes still queued are failed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        batchThread.interrupt();
+        try {
+            batchThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new RejectedExecutionException("Batcher closed"));
+        }
+    }
+}
@@ -3,39 +3,133 @@ package com.kitchen.model.processing; // Adjust package name if needed (e.g., co
 import edu.stanford.nlp.ie.crf.CRFClassifier;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.pipeline.Annotation;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.util.CoreMap;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.kitchen.model.InputRecipe;
 import com.kitchen.model.RecipeStep;
 import com.kitchen.model.StepIngredient;
 import com.kitchen.model.StructuredRecipe;
 
-public class RecipeProcessor {
+/**
+ * Turns recipes into structured steps with the custom NER model.
+ *
+ * The loaded {@link CRFClassifier} is read-only after loading and is shared by all threads; every thread
+ * that processes recipes gets its own sentence-splitting pipeline. {@link #processRecipe} may therefore be
+ * called from any thread, and {@link #processAll} / {@link #processAsync} run recipes on a pool of
+ * {@code parallelism} worker threads, giving the same results as calling {@code processRecipe} in order.
+ *
+ * Decoded sentences are memoized in a shared {@link SentenceCache}, so sentences that recur across recipes
+ * are only tagged once.
+ *
+ * The model can be replaced while the processor is in use ({@link #reloadModel}): each recipe is processed
+ * entirely with the model that was current when it started, and the sentence cache belongs to the model,
+ * so it starts empty with every new model.
+ */
+public class RecipeProcessor implements AutoCloseable {
 
-    private final CRFClassifier<CoreLabel> nerClassifier;
-    private final StanfordCoreNLP sentencePipeline;
+    public static final int DEFAULT_SENTENCE_CACHE_SIZE = 20_000;
+    private static final int RELOAD_WARM_UP_ROUNDS = 10;
+
+    // Typical instruction sentences for warmUp(): actions, ingredients, quantities, times, temperatures, tools.
+    private static final List<String> WARM_UP_INSTRUCTIONS = Arrays.asList(
+            "Heat 2 tablespoons of oil in a heavy bottomed pan over medium flame.",
+            "Add the mustard seeds and let them splutter, then add curry leaves and chopped onions.",
+            "Saute for 5 to 6 minutes until the onions turn golden brown.",
+            "Stir in the ginger garlic paste, turmeric powder and red chilli powder.",
+            "Pressure cook the soaked dal with 3 cups of water for 4 whistles.",
+            "Preheat the oven to 180 C and bake the dough for 20 minutes.",
+            "Garnish with coriander leaves and serve hot with steamed rice.");
+
+    private final AtomicReference<Model> model = new AtomicReference<>();
+    private final List<Consumer<String>> modelListeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<SentenceSplitter> splitters;
+    private final ThreadLocal<CoreNlpSentenceSplitter> retokenizePipelines = ThreadLocal.withInitial(CoreNlpSentenceSplitter::new);
+    private final int parallelism;
+    private final int sentenceCacheSize;
+    private final StageTimings timings = new StageTimings();
+    private ExecutorService workers; // created on first batch/async call
+    private ExecutorService reloader; // created on first reload
+
+    /**
+     * A loaded model and what is derived from it, swapped as a whole.
+     */
+    private static final class Model {
+        final String path;
+        final String version;
+        final CRFClassifier<CoreLabel> classifier;
+        final BioSpanDecoder spanDecoder;
+        final SentenceCache sentenceCache; // null when disabled
+
+        Model(String path, int sentenceCacheSize) throws IOException, ClassNotFoundException {
+            this.path = path;
+            this.version = StructuredRecipeCache.modelHash(path);
+            this.classifier = CRFClassifier.getClassifier(path);
+            this.spanDecoder = new BioSpanDecoder(classifier.classIndex.objectsList());
+            this.sentenceCache = sentenceCacheSize > 0 ? new SentenceCache(sentenceCacheSize) : null;
+        }
+    }
 
     /**
      * Constructor for RecipeProcessor.
      * Loads the custom Stanford NER model.
-     * Sets up a basic CoreNLP pipeline for sentence splitting.
+     * Sets up the sentence splitter selected by the {@value SentenceSplitter#PROPERTY} system property.
      *
      * @param modelPath Path to the serialized NER model file (.ser.gz).
      * @throws RuntimeException If the model cannot be loaded.
      */
     public RecipeProcessor(String modelPath) {
+        this(modelPath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param modelPath   Path to the serialized NER model file (.ser.gz).
+     * @param parallelism Number of worker threads used by {@link #processAll} and {@link #processAsync}.
+     * @throws RuntimeException If the model cannot be loaded.
+     */
+    public RecipeProcessor(String modelPath, int parallelism) {
+        this(modelPath, parallelism, DEFAULT_SENTENCE_CACHE_SIZE);
+    }
+
+    /**
+     * @param modelPath         Path to the serialized NER model file (.ser.gz).
+     * @param parallelism       Number of worker threads used by {@link #processAll} and {@link #processAsync}.
+     * @param sentenceCacheSize Maximum number of decoded sentences to memoize; 0 disables the cache.
+     * @throws RuntimeException If the model cannot be loaded.
+     */
+    public RecipeProcessor(String modelPath, int parallelism, int sentenceCacheSize) {
+        this(modelPath, parallelism, sentenceCacheSize, SentenceSplitter.defaultFactory());
+    }
+
+    /**
+     * @param modelPath         Path to the serialized NER model file (.ser.gz).
+     * @param parallelism       Number of worker threads used by {@link #processAll} and {@link #processAsync}.
+     * @param sentenceCacheSize Maximum number of decoded sentences to memoize; 0 disables the cache.
+     * @param splitterFactory   Creates the sentence splitter of each thread, see {@link SentenceSplitter#factory}.
+     * @throws RuntimeException If the model cannot be loaded.
+     */
+    public RecipeProcessor(String modelPath, int parallelism, int sentenceCacheSize, Supplier<SentenceSplitter> splitterFactory) {
+        this.splitters = ThreadLocal.withInitial(splitterFactory);
+        this.sentenceCacheSize = sentenceCacheSize;
         try {
-           this.nerClassifier = CRFClassifier.getClassifier(modelPath);
-            Properties props = new Properties();
-            props.setProperty("annotators", "tokenize, ssplit");
-            this.sentencePipeline = new StanfordCoreNLP(props);
+           this.model.set(new Model(modelPath, sentenceCacheSize));
+           this.splitters.get(); // build the constructing thread's splitter up front
 
         } catch (IOException | ClassCastException | ClassNotFoundException e) {
             System.err.println("Error loading NER model from path/resource: " + modelPath);
@@ -43,29 +137,309 @@ public class RecipeProcessor {
             e.printStackTrace(); // Print detailed error
             throw new RuntimeException("Failed to load NER model", e);
         }
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return The current model's sentence cache (for statistics), or {@code null} if it is disabled.
+     */
+    public SentenceCache getSentenceCache() {
+        return model.get().sentenceCache;
+    }
+
+    /**
+     * @return The SHA-256 of the current model file, as used by {@link StructuredRecipeCache}.
+     */
+    public String getModelVersion() {
+        return model.get().version;
+    }
+
+    public String getModelPath() {
+        return model.get().path;
+    }
+
+    // package-private for RecipeProcessorBenchmark
+    BioSpanDecoder spanDecoder() {
+        return model.get().spanDecoder;
+    }
+
+    /**
+     * Registers a listener called with the new version after a reload swapped in a different model, e.g. to
+     * invalidate results computed with the old one. Called on the reloading thread.
+     */
+    public void addModelListener(Consumer<String> listener) {
+        modelListeners.add(listener);
+    }
+
+    /**
+     * Reloads the model from the current model path, see {@link #reloadModel(String)}.
+     */
+    public CompletableFuture<String> reloadModel() {
+        return reloadModel(getModelPath());
+    }
+
+    /**
+     * Loads a model in the background, warms it up on the loading thread and then swaps it in. Recipes that
+     * are being processed finish with the previous model, later ones use the new one; the previous model
+     * becomes garbage once they are done. Nothing changes if the file has the same content as the current
+     * model. Reloads run one at a time, in the order they were requested.
+     *
+     * @param modelPath Path to the serialized NER model file (.ser.gz), or a classpath resource name.
+     * @return Completes with the version of the model in use afterwards, or exceptionally if the model can't be
+     *         loaded, in which case the current model stays in use.
+     */
+    public CompletableFuture<String> reloadModel(String modelPath) {
+        return CompletableFuture.supplyAsync(() -> {
+            Model current = model.get();
+            Model loaded;
+            long start = System.nanoTime();
+            try {
+                if (current.version.equals(StructuredRecipeCache.modelHash(modelPath))) {
+                    return current.version;
+                }
+                loaded = new Model(modelPath, sentenceCacheSize);
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                System.err.println("Could not reload NER model from " + modelPath + ", keeping the current one: " + e);
+                throw new CompletionException(e);
+            }
+            warmUp(loaded, RELOAD_WARM_UP_ROUNDS);
+            model.set(loaded);
+            System.out.printf("Reloaded NER model %s in %d ms (version %s, was %s).%n", modelPath,
+                    (System.nanoTime() - start) / 1_000_000, abbreviate(loaded.version), abbreviate(current.version));
+            for (Consumer<String> listener : modelListeners) {
+                try {
+                    listener.accept(loaded.version);
+                } catch (RuntimeException e) {
+                    System.err.println("Model listener failed: " + e);
+                }
+            }
+            return loaded.version;
+        }, reloader());
+    }
+
+    private static String abbreviate(String version) {
+        return version.substring(0, Math.min(12, version.length()));
+    }
+
+    /**
+     * Runs sample sentences through splitting, tagging and decoding on every worker thread, so that the JIT
+     * has compiled the tagging path and each worker has built its sentence pipeline before the first real
+     * recipe arrives. Bypasses the sentence cache and the stage timings.
+     *
+     * @param rounds Passes over the samples per thread; a few hundred sentences are usually enough.
+     */
+    public void warmUp(int rounds) {
+        List<Future<?>> futures = new ArrayList<>(parallelism);
+        ExecutorService pool = workers();
+        // A fixed pool starts a new thread for each of its first 'parallelism' tasks, so every worker gets one.
+        Model current = model.get();
+        for (int t = 0; t < parallelism; t++) {
+            futures.add(pool.submit(() -> warmUp(current, rounds)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Warm-up failed", e.getCause());
+        }
+    }
+
+    private void warmUp(Model target, int rounds) {
+        List<EntitySpan> spans = new ArrayList<>();
+        List<String> outsideWords = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            for (List<CoreLabel> tokens : splitSentences(WARM_UP_INSTRUCTIONS)) {
+                spans.clear();
+                outsideWords.clear();
+                target.spanDecoder.decode(target.classifier.classifySentence(tokens), spans, outsideWords);
+            }
+        }
+    }
+
+    /**
+     * @return Time spent per processing stage since construction or the last {@link StageTimings#reset()}.
+     */
+    public StageTimings getStageTimings() {
+        return timings;
+    }
+
+    /**
+     * Processes a recipe on the worker pool.
+     */
+    public CompletableFuture<StructuredRecipe> processAsync(InputRecipe inputRecipe) {
+        return CompletableFuture.supplyAsync(() -> processRecipe(inputRecipe), workers());
+    }
+
+    /**
+     * Processes a recipe on the worker pool, handing each step to {@code onStep} as soon as its sentence
+     * is classified, so a caller can show the first step without waiting for the rest.
+     *
+     * @param onStep Called on the worker thread, in step order.
+     * @return Completes with the whole structured recipe after the last step was delivered.
+     */
+    public CompletableFuture<StructuredRecipe> processRecipeStreaming(InputRecipe inputRecipe, Consumer<RecipeStep> onStep) {
+        return CompletableFuture.supplyAsync(() -> processRecipe(inputRecipe, onStep), workers());
+    }
+
+    /**
+     * Processes recipes in parallel on the worker pool.
+     *
+     * @return The structured recipes, in the iteration order of {@code inputRecipes}.
+     */
+    public List<StructuredRecipe> processAll(Collection<InputRecipe> inputRecipes) {
+        ExecutorService pool = workers();
+        List<Future<StructuredRecipe>> futures = new ArrayList<>(inputRecipes.size());
+        for (InputRecipe recipe : inputRecipes) {
+            futures.add(pool.submit(() -> processRecipe(recipe)));
+        }
+        List<StructuredRecipe> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<StructuredRecipe> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while processing recipes", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException("Failed to process recipe", e.getCause());
+        }
+        return results;
+    }
+
+    private synchronized ExecutorService workers() {
+        if (workers == null) {
+            AtomicInteger count = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "recipe-processor-" + count.incrementAndGet());
+                t.setDaemon(true); // don't keep the application alive
+                return t;
+            });
+        }
+        return workers;
+    }
+
+    private synchronized ExecutorService reloader() {
+        if (reloader == null) {
+            reloader = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "model-reloader");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY); // don't compete with requests on the old model
+                return t;
+            });
+        }
+        return reloader;
+    }
+
+    /**
+     * Stops the worker pool and the reloading thread, if they were started.
+     */
+    @Override
+    public synchronized void close() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+        if (reloader != null) {
+            reloader.shutdown();
+            reloader = null;
+        }
+    }
+
+    /**
+     * Splits the instructions into sentences and tags each one with the NER model.
+     *
+     * @param retokenize {@code false} tags the tokens produced by the sentence splitter, so the text is
+     *                   tokenized once; {@code true} is the previous behaviour of classifying each sentence's
+     *                   raw text, which tokenizes it again (kept for parity checks and benchmarks; this
+     *                   always splits with CoreNLP).
+     * @return The tagged tokens of every non-empty sentence, with the tag in {@link CoreAnnotations.AnswerAnnotation}.
+     */
+    List<List<CoreLabel>> tagSentences(List<String> instructions, boolean retokenize) {
+        CRFClassifier<CoreLabel> classifier = model.get().classifier;
+        List<List<CoreLabel>> tagged = new ArrayList<>();
+        if (!retokenize) {
+            for (List<CoreLabel> tokens : splitSentences(instructions)) {
+                tagged.add(classifier.classifySentence(tokens));
+            }
+            return tagged;
+        }
+        for (CoreMap sentence : retokenizePipelines.get().annotate(String.join(" ", instructions))) {
+            String sentenceText = sentence.get(CoreAnnotations.TextAnnotation.class).trim();
+            if (!sentenceText.isEmpty()) {
+                tagged.add(classifier.classify(sentenceText).get(0));
+            }
+        }
+        return tagged;
+    }
+
+    /**
+     * Splits the instructions into sentences.
+     *
+     * @return The tokens of every non-empty sentence.
+     */
+    List<List<CoreLabel>> splitSentences(List<String> instructions) {
+        return splitters.get().split(String.join(" ", instructions));
+    }
+
+    /**
+     * Tags and decodes one sentence with the given model, or returns the memoized result for the same tokens.
+     */
+    private SentenceCache.DecodedSentence decodeSentence(Model current, List<CoreLabel> tokens) {
+        SentenceCache sentenceCache = current.sentenceCache;
+        String key = null;
+        if (sentenceCache != null) {
+            key = SentenceCache.key(tokens);
+            SentenceCache.DecodedSentence cached = sentenceCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long start = System.nanoTime();
+        List<CoreLabel> tagged = current.classifier.classifySentence(tokens);
+        long taggedAt = System.nanoTime();
+        List<EntitySpan> spans = new ArrayList<>();
+        List<String> outsideWords = new ArrayList<>();
+        current.spanDecoder.decode(tagged, spans, outsideWords);
+        SentenceCache.DecodedSentence decoded = new SentenceCache.DecodedSentence(spans, outsideWords);
+        long end = System.nanoTime();
+        timings.recordTag(taggedAt - start);
+        timings.recordDecode(end - taggedAt);
+        if (key != null) {
+            sentenceCache.put(key, decoded, end - start);
+        }
+        return decoded;
     }
 
-    
     public StructuredRecipe processRecipe(InputRecipe inputRecipe) {
+        return processRecipe(inputRecipe, null);
+    }
+
+    private StructuredRecipe processRecipe(InputRecipe inputRecipe, Consumer<RecipeStep> onStep) {
         if (inputRecipe == null || inputRecipe.getInstructions() == null || inputRecipe.getInstructions().isEmpty()) { // Check if list is empty
             System.err.println("Warning: Recipe '" + (inputRecipe != null ? inputRecipe.getName() : "Unknown") + "' has no instructions list to process.");
             return new StructuredRecipe(inputRecipe != null ? inputRecipe.getName() : "Unknown", new ArrayList<>());
         }
     
+        Model current = model.get(); // the whole recipe uses one model, even if it is reloaded meanwhile
+        long start = System.nanoTime();
         List<RecipeStep> structuredSteps = new ArrayList<>();
-        String instructionsText = String.join(" ", inputRecipe.getInstructions());
-       
-        Annotation document = new Annotation(instructionsText);
-        sentencePipeline.annotate(document);
-        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        List<List<CoreLabel>> sentences = splitSentences(inputRecipe.getInstructions());
+        timings.recordSplit(System.nanoTime() - start, sentences.size());
 
         int stepCounter = 1;
-        for (CoreMap sentence : sentences) {
-            String sentenceText = sentence.get(CoreAnnotations.TextAnnotation.class).trim();
-            if (sentenceText.isEmpty()) {
-                continue; 
-            }
-            List<CoreLabel> classifiedTokens = nerClassifier.classify(sentenceText).get(0); 
+        for (List<CoreLabel> sentenceTokens : sentences) {
+            SentenceCache.DecodedSentence decoded = decodeSentence(current, sentenceTokens);
+            List<String> paramParts = decoded.getOutsideWords();
+
             String action = null;
             List<StepIngredient> ingredients = new ArrayList<>();
             List<String> timeParts = new ArrayList<>();
@@ -73,72 +447,20 @@ public class RecipeProcessor {
             List<String> toolParts = new ArrayList<>();
             List<String> quantityParts = new ArrayList<>();
             List<String> stateParts = new ArrayList<>();
-            List<String> paramParts = new ArrayList<>();
-
-            StringBuilder currentPhrase = null;
-            String currentTagType = null;
-
-            for (CoreLabel token : classifiedTokens) {
-                String word = token.originalText();
-                String nerTag = token.get(CoreAnnotations.AnswerAnnotation.class); // The predicted tag
-                String tagPrefix = nerTag.startsWith("B-") ? "B" : (nerTag.startsWith("I-") ? "I" : "O");
-                String tagType = nerTag.length() > 2 ? nerTag.substring(2) : null; // e.g., INGREDIENT, ACTION, TIME
-
-                if (!tagPrefix.equals("I") || (currentTagType != null && !currentTagType.equals(tagType))) {
-                    if (currentPhrase != null && currentTagType != null) {
-                        String phrase = currentPhrase.toString().trim();
-                        switch (currentTagType) {
-                            case "INGREDIENT": ingredients.add(new StepIngredient(phrase)); break;
-                            case "TIME":       timeParts.add(phrase); break;
-                            case "TEMP":       tempParts.add(phrase); break;
-                            case "TOOL":       toolParts.add(phrase); break;
-                            case "QUANTITY": 
-                            case "UNIT":       quantityParts.add(phrase); break;
-                            case "STATE":      stateParts.add(phrase); break;
-                            }
-                        currentPhrase = null;
-                        currentTagType = null;
-                    }
-                }
-                if (tagPrefix.equals("B")) {
-                    currentPhrase = new StringBuilder(word); 
-                    currentTagType = tagType;
-                    if ("ACTION".equals(tagType)) {
-                        action = word; 
-                        currentPhrase = null;
-                        currentTagType = null;
-                    }
-                } else if (tagPrefix.equals("I")) {
-                    if (currentPhrase != null && currentTagType != null && currentTagType.equals(tagType)) {
-                        currentPhrase.append(" ").append(word);
-                    } else {
-                        System.err.printf("Warning: Unexpected I-%s tag for '%s' without preceding B-%s. Treating as B-%s.\n",
-                                          tagType, word, tagType, tagType);
-                        currentPhrase = new StringBuilder(word);
-                        currentTagType = tagType;
-                         if ("ACTION".equals(tagType)) { 
-                             action = word; 
-                             currentPhrase = null;
-                             currentTagType = null;
-                         }
-                    }
-                } else { if (!word.matches("[.,;!?:]+") && !word.toLowerCase().matches("\\b(a|an|the|is|are|was|were|in|on|at|to|of|and|or|but|it|this|that|they|with|for|will|be|can|i|you|he|she)\\b")) {
-                        paramParts.add(word);
-                    }
+
+            for (EntitySpan span : decoded.getSpans()) {
+                String phrase = span.getText();
+                switch (span.getType()) {
+                    case ACTION:     action = phrase; break; // the last action in the sentence wins
+                    case INGREDIENT: ingredients.add(new StepIngredient(phrase)); break;
+                    case TIME:       timeParts.add(phrase); break;
+                    case TEMP:       tempParts.add(phrase); break;
+                    case TOOL:       toolParts.add(phrase); break;
+                    case QUANTITY:
+                    case UNIT:       quantityParts.add(phrase); break;
+                    case STATE:      stateParts.add(phrase); break;
                 }
-            } 
-            if (currentPhrase != null && currentTagType != null) {
-                 String phrase = currentPhrase.toString().trim();
-                 switch (currentTagType) {
-                      case "INGREDIENT": ingredients.add(new StepIngredient(phrase)); break;
-                      case "TIME":       timeParts.add(phrase); break;
-                      case "TEMP":       tempParts.add(phrase); break;
-                      case "TOOL":       toolParts.add(phrase); break;
-                      case "QUANTITY":
-                      case "UNIT":       quantityParts.add(phrase); break;
-                      case "STATE":      stateParts.add(phrase); break;
-                 }
-             }
+            }
 
             boolean hasInfo = action != null || !ingredients.isEmpty() || !timeParts.isEmpty() ||
                               !tempParts.isEmpty() || !toolParts.isEmpty() || !quantityParts.isEmpty() ||
@@ -164,9 +486,13 @@ public class RecipeProcessor {
                     paramStr
                 );
                 structuredSteps.add(step);
+                if (onStep != null) {
+                    onStep.accept(step);
+                }
             } 
         }
 
+        timings.recordRecipe(System.nanoTime() - start);
         return new StructuredRecipe(inputRecipe.getName(), structuredSteps);
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.kitchen.model.processing;
+
+import com.kitchen.model.InputRecipe;
+import com.kitchen.model.Main;
+import com.kitchen.model.StructuredRecipe;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks {@link RecipeProcessor} on the recipe corpus:
+ * <ul>
+ *   <li>tagging the sentence splitter's tokens directly versus re-tokenizing each sentence's text
+ *       (latency per recipe, and whether every token gets the same tag), and</li>
+ *   <li>sequential {@link RecipeProcessor#processRecipe} calls versus the parallel
+ *       {@link RecipeProcessor#processAll} (throughput, and whether the structured output is identical).</li>
+ *   <li>decoding alone: {@link BioSpanDecoder} over the already tagged sentences.</li>
+ * </ul>
+ *
+ * Usage: {@code RecipeProcessorBenchmark [recipeFile] [--model path] [--threads N] [--limit N] [--sentence-cache N]}
+ */
+public class RecipeProcessorBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String recipeFile = "src/main/resources/complete_indian_recipes.json";
+        String modelPath = "src/main/resources/ner-model.ser.gz";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int limit = Integer.MAX_VALUE;
+        int sentenceCacheSize = RecipeProcessor.DEFAULT_SENTENCE_CACHE_SIZE;
+        for (int i = 0; i < args.length; i++) {
+            if ("--model".equals(args[i]) && i + 1 < args.length) {
+                modelPath = args[++i];
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--limit".equals(args[i]) && i + 1 < args.length) {
+                limit = Integer.parseInt(args[++i]);
+            } else if ("--sentence-cache".equals(args[i]) && i + 1 < args.length) {
+                sentenceCacheSize = Integer.parseInt(args[++i]);
+            } else {
+                recipeFile = args[i];
+            }
+        }
+
+        List<InputRecipe> recipes;
+        try (InputStream in = Files.newInputStream(Paths.get(recipeFile))) {
+            recipes = Main.readRecipes(in);
+        }
+        if (recipes.size() > limit) {
+            recipes = new ArrayList<>(recipes.subList(0, limit));
+        }
+
+        try (RecipeProcessor processor = new RecipeProcessor(modelPath, threads, sentenceCacheSize)) {
+            // Warm-up so the first timed pass doesn't pay for JIT compilation.
+            for (InputRecipe recipe : recipes.subList(0, Math.min(50, recipes.size()))) {
+                processor.processRecipe(recipe);
+            }
+
+            long retokenizeNanos = 0;
+            long singlePassNanos = 0;
+            int tokens = 0;
+            int tagMismatches = 0;
+            int textMismatches = 0;
+            List<List<CoreLabel>> taggedSentences = new ArrayList<>();
+            for (int r = 0; r < recipes.size(); r++) {
+                InputRecipe recipe = recipes.get(r);
+                if (recipe.getInstructions() == null || recipe.getInstructions().isEmpty()) {
+                    continue;
+                }
+                // Alternate which variant runs first so neither always benefits from warm caches.
+                List<List<CoreLabel>> retokenized = null;
+                List<List<CoreLabel>> singlePass = null;
+                for (int pass = 0; pass < 2; pass++) {
+                    boolean retokenize = (pass == 0) == (r % 2 == 0);
+                    long t0 = System.nanoTime();
+                    List<List<CoreLabel>> tagged = processor.tagSentences(recipe.getInstructions(), retokenize);
+                    long elapsed = System.nanoTime() - t0;
+                    if (retokenize) {
+                        retokenized = tagged;
+                        retokenizeNanos += elapsed;
+                    } else {
+                        singlePass = tagged;
+                        singlePassNanos += elapsed;
+                    }
+                }
+                for (List<CoreLabel> sentence : singlePass) {
+                    tokens += sentence.size();
+                }
+                taggedSentences.addAll(singlePass);
+                if (!format(retokenized, false).equals(format(singlePass, false))) {
+                    if (tagMismatches++ < 5) {
+                        System.out.println("Tag mismatch in '" + recipe.getName() + "':\n  "
+                                + format(retokenized, true) + "\n  " + format(singlePass, true));
+                    }
+                } else if (!format(retokenized, true).equals(format(singlePass, true))) {
+                    textMismatches++; // same tags, token text differs (e.g. "etc." kept whole at sentence end)
+                }
+            }
+
+            List<EntitySpan> spans = new ArrayList<>();
+            List<String> outsideWords = new ArrayList<>();
+            long decodeNanos = 0;
+            for (int round = 0; round < 5; round++) { // the first round is warm-up
+                long start = System.nanoTime();
+                for (List<CoreLabel> sentence : taggedSentences) {
+                    spans.clear();
+                    outsideWords.clear();
+                    processor.spanDecoder().decode(sentence, spans, outsideWords);
+                }
+                if (round > 0) {
+                    decodeNanos += System.nanoTime() - start;
+                }
+            }
+
+            // Each timed pass starts with an empty sentence cache, so the passes are comparable and the
+            // hit rate reflects sentences repeated within the corpus.
+            SentenceCache sentenceCache = processor.getSentenceCache();
+            if (sentenceCache != null) {
+                sentenceCache.clear();
+            }
+            long start = System.nanoTime();
+            List<StructuredRecipe> sequential = new ArrayList<>();
+            for (InputRecipe recipe : recipes) {
+                sequential.add(processor.processRecipe(recipe));
+            }
+            long sequentialNanos = System.nanoTime() - start;
+
+            SentenceCache.Stats cacheStats = sentenceCache == null ? null : sentenceCache.getStats();
+            if (sentenceCache != null) {
+                sentenceCache.clear();
+            }
+            start = System.nanoTime();
+            List<StructuredRecipe> parallel = processor.processAll(recipes);
+            long parallelNanos = System.nanoTime() - start;
+
+            int mismatches = 0;
+            for (int i = 0; i < recipes.size(); i++) {
+                if (!sequential.get(i).toString().equals(parallel.get(i).toString())) {
+                    if (mismatches++ < 5) {
+                        System.out.println("Mismatch for '" + recipes.get(i).getName() + "'");
+                    }
+                }
+            }
+
+            System.out.println("------------------------------------------");
+            System.out.println("Recipes: " + recipes.size() + ", tokens: " + tokens);
+            System.out.printf("Tagging, re-tokenizing each sentence: %6.2f ms/recipe%n", retokenizeNanos / 1e6 / recipes.size());
+            System.out.printf("Tagging, single tokenization pass:    %6.2f ms/recipe (%.2f ms saved)%n",
+                    singlePassNanos / 1e6 / recipes.size(), (retokenizeNanos - singlePassNanos) / 1e6 / recipes.size());
+            System.out.println("Identical tags: " + (tagMismatches == 0) + (tagMismatches == 0 ? "" : " (" + tagMismatches + " recipes differ)")
+                    + "; recipes with same tags but different token text: " + textMismatches);
+            System.out.printf("Decoding only: %.0f sentences/s%n", taggedSentences.size() * 4 / (decodeNanos / 1e9));
+            System.out.printf("Sequential processRecipe: %8.1f ms (%.1f recipes/s)%n",
+                    sequentialNanos / 1e6, recipes.size() / (sequentialNanos / 1e9));
+            System.out.printf("processAll (%d threads):   %8.1f ms (%.1f recipes/s)%n", threads,
+                    parallelNanos / 1e6, recipes.size() / (parallelNanos / 1e9));
+            System.out.println("Sentence cache (sequential pass): " + (cacheStats == null ? "disabled" : cacheStats));
+            System.out.println("Identical output: " + (mismatches == 0) + (mismatches == 0 ? "" : " (" + mismatches + " mismatches)"));
+            System.out.println("------------------------------------------");
+        }
+    }
+
+    // "TAG" or "word/TAG" per token, sentences separated by " | ".
+    private static String format(List<List<CoreLabel>> sentences, boolean withWords) {
+        StringBuilder sb = new StringBuilder();
+        for (List<CoreLabel> sentence : sentences) {
+            if (sb.length() > 0) {
+                sb.append(" | ");
+            }
+            for (CoreLabel token : sentence) {
+                if (withWords) {
+                    sb.append(token.originalText()).append('/');
+                }
+                sb.append(token.get(CoreAnnotations.AnswerAnnotation.class)).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+}
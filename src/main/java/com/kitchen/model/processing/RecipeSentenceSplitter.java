@@ -0,0 +1,475 @@
+package com.kitchen.model.processing;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lightweight tokenizer and sentence splitter for recipe instructions, a drop-in replacement for the CoreNLP
+ * {@code tokenize, ssplit} pipeline: a single pass over the characters, no regular expressions, no lexer tables
+ * to build, and only the token {@link CoreLabel}s and their lists are allocated. It follows CoreNLP's
+ * tokenization where recipe text needs it, so the NER model (trained on CoreNLP tokens) sees the same words:
+ * <ul>
+ *   <li>numbers stay whole: {@code 1.5}, {@code 1,000}, {@code 1/2}, mixed fractions {@code 1 1/2} (word with a
+ *       non-breaking space), and {@code ½} becomes {@code 1/2};</li>
+ *   <li>{@code °C}/{@code °F} are one token; hyphens split words except after CoreNLP's prefixes ({@code non-stick},
+ *       {@code pre-heat}); clitics split as in {@code Do|n't} and {@code it|'s};</li>
+ *   <li>abbreviations such as {@code tsp.}, {@code approx.}, {@code e.g.} keep their period, {@code ...} and
+ *       {@code !!!} are single tokens, emoticons stay whole;</li>
+ *   <li>sentences end at {@code .}, {@code !} or {@code ?}, taking any closing brackets and quotes that follow.</li>
+ * </ul>
+ * Where it deliberately differs from CoreNLP: a sentence can end without a space after it, as it often does in
+ * scraped recipe text ({@code well!Then}, and {@code mins.Add} when the next word is capitalized); markup,
+ * e-mail addresses and {@code @handles} are not kept whole.
+ *
+ * Instances hold no state between calls and may be shared between threads.
+ */
+public class RecipeSentenceSplitter implements SentenceSplitter {
+
+    private static final char NBSP = '\u00A0';
+
+    // Abbreviations (lower case, without the period) that keep their period inside a sentence; before a
+    // capitalized word they end it. The same list as CoreNLP's, so "oz." or "hrs." split off their period.
+    private static final Set<String> ABBREVIATIONS = new HashSet<>(Arrays.asList(
+            "tsp", "tbsp", "lb", "min", "ft", "etc",
+            "jan", "feb", "mar", "apr", "jun", "jul", "aug", "sep", "sept", "oct", "nov", "dec"));
+    // Titles keep their period even before a capitalized word ("Dr. Smith").
+    private static final Set<String> TITLES = new HashSet<>(Arrays.asList(
+            "mr", "mrs", "ms", "dr", "st", "jr", "sr", "vs", "cf"));
+    // Only abbreviations when a number follows ("No. 2", "approx. 5").
+    private static final Set<String> NUMBER_ABBREVIATIONS = new HashSet<>(Arrays.asList("no", "nos", "nr", "approx"));
+    // Hyphenated words starting with these stay one token: CoreNLP's full prefix list (over-mix, sub-divide).
+    private static final Set<String> HYPHEN_PREFIXES = new HashSet<>(Arrays.asList(
+            "a", "ante", "anti", "arch", "be", "bi", "co", "counter", "cross", "cyber", "de", "e", "eco", "ex",
+            "extra", "inter", "intra", "macro", "mega", "micro", "mid", "mini", "multi", "neo", "non", "over", "pan",
+            "para", "peri", "post", "pre", "pro", "pseudo", "quasi", "re", "semi", "sub", "super", "tri", "u",
+            "ultra", "un", "uni", "vice", "x"));
+    // Units split off a number written against it (500ml -> 500 ml), as in CoreNLP; 2cups or 500g stay whole.
+    private static final Set<String> NUMBER_SUFFIXES = new HashSet<>(Arrays.asList(
+            "mm", "cm", "km", "mg", "kg", "ml", "cl", "lb", "lbs", "pt", "ltr", "hr", "hrs", "min", "mins", "am", "pm"));
+    // Contractions written without an apostrophe, and where CoreNLP splits them: cannot -> can not, dont -> do nt
+    private static final Map<String, int[]> SPLIT_WORDS = new HashMap<>();
+
+    static {
+        SPLIT_WORDS.put("cannot", new int[]{3});
+        SPLIT_WORDS.put("dont", new int[]{2});
+        SPLIT_WORDS.put("doesnt", new int[]{4});
+        SPLIT_WORDS.put("didnt", new int[]{3});
+        SPLIT_WORDS.put("aint", new int[]{2});
+        SPLIT_WORDS.put("theyre", new int[]{4});
+        SPLIT_WORDS.put("gonna", new int[]{3});
+        SPLIT_WORDS.put("wanna", new int[]{3});
+        SPLIT_WORDS.put("gotta", new int[]{3});
+        SPLIT_WORDS.put("gimme", new int[]{3});
+        SPLIT_WORDS.put("lemme", new int[]{3});
+        SPLIT_WORDS.put("dunno", new int[]{2, 3});
+    }
+
+    @Override
+    public List<List<CoreLabel>> split(String text) {
+        Tokens out = new Tokens();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == NBSP) {
+                i++;
+            } else if (isDigit(c)) {
+                i = number(text, i, out);
+            } else if (isWordChar(c)) {
+                i = word(text, i, out);
+            } else {
+                i = symbol(text, i, out);
+            }
+        }
+        out.finish();
+        return out.sentences;
+    }
+
+    // Digits: 10, 1.5, 1,000, 1/2, "1 1/2", and alphanumerics such as 2cups or 9x13.
+    private static int number(String text, int start, Tokens out) {
+        int n = text.length();
+        int i = digits(text, start);
+        boolean plain = true;
+        while (i + 1 < n && (text.charAt(i) == '.' || text.charAt(i) == ',') && isDigit(text.charAt(i + 1))) {
+            i = digits(text, i + 1);
+            plain = false;
+        }
+        if (i + 1 < n && text.charAt(i) == '/' && isDigit(text.charAt(i + 1))) {
+            int slash = i;
+            i = digits(text, i + 1);
+            if (i < n && isWordChar(text.charAt(i))) { // 1/2kg -> 1 / 2 kg
+                out.add(text, start, slash);
+                out.add(text, slash, slash + 1);
+                return slash + 1;
+            }
+            plain = false;
+        }
+        if (plain) {
+            int fractionEnd = mixedFraction(text, i);
+            if (fractionEnd > 0) {
+                out.add(text, start, fractionEnd, text.substring(start, i) + NBSP + text.substring(i + 1, fractionEnd));
+                return fractionEnd;
+            }
+            if (i < n && isWordChar(text.charAt(i)) && !NUMBER_SUFFIXES.contains(text.substring(i, wordChars(text, i)))) {
+                return word(text, start, out); // 2cups, 200C, 9x13
+            }
+        }
+        out.add(text, start, i);
+        return i;
+    }
+
+    // End of " 3/4" following a whole number, or 0 if the whole number doesn't go on with a fraction.
+    private static int mixedFraction(String text, int i) {
+        int n = text.length();
+        if (i + 3 >= n || text.charAt(i) != ' ' || !isDigit(text.charAt(i + 1))) {
+            return 0;
+        }
+        int slash = digits(text, i + 1);
+        if (slash + 1 >= n || text.charAt(slash) != '/' || !isDigit(text.charAt(slash + 1))) {
+            return 0;
+        }
+        int end = digits(text, slash + 1);
+        return end < n && text.charAt(end) == '/' ? 0 : end;
+    }
+
+    private static int word(String text, int start, Tokens out) {
+        int n = text.length();
+        int i = wordChars(text, start);
+
+        // Dotted abbreviations: e.g., U.S., a.m.
+        if (i - start == 1 && i + 2 < n && text.charAt(i) == '.' && isLetter(text.charAt(i + 1))
+                && text.charAt(i + 2) == '.') {
+            int end = i;
+            while (end + 1 < n && text.charAt(end) == '.' && isLetter(text.charAt(end + 1))
+                    && (end + 2 == n || !isWordChar(text.charAt(end + 2)))) {
+                end += 2;
+            }
+            if (end < n && text.charAt(end) == '.') {
+                out.add(text, start, end + 1);
+                return end + 1;
+            }
+        }
+
+        // Hyphenated words after a known prefix: non-stick, pre-heat.
+        while (i + 1 < n && text.charAt(i) == '-' && isWordChar(text.charAt(i + 1))
+                && HYPHEN_PREFIXES.contains(lowerCase(text, start, i))) {
+            i = wordChars(text, i + 1);
+        }
+
+        if (i < n && isApostrophe(text.charAt(i))) {
+            return clitic(text, start, i, out);
+        }
+        if (i < n && text.charAt(i) == '.') {
+            return period(text, start, i, out);
+        }
+        int[] parts = splitWord(text, start, i);
+        if (parts != null) {
+            int from = start;
+            for (int length : parts) {
+                out.add(text, from, from + length);
+                from += length;
+            }
+            out.add(text, from, i);
+            return i;
+        }
+        out.add(text, start, i);
+        return i;
+    }
+
+    // Where to split the word, or null; compares in place so the common case allocates nothing.
+    private static int[] splitWord(String text, int start, int end) {
+        int length = end - start;
+        if (length < 4 || length > 6) {
+            return null;
+        }
+        for (Map.Entry<String, int[]> entry : SPLIT_WORDS.entrySet()) {
+            if (entry.getKey().length() == length && text.regionMatches(true, start, entry.getKey(), 0, length)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // A word followed by ' or ’: don't -> do n't, it's -> it 's, O'Brien stays whole, ladies' -> ladies '
+    private static int clitic(String text, int start, int apostrophe, Tokens out) {
+        int n = text.length();
+        int after = apostrophe + 1;
+        int suffixEnd = after < n && isLetter(text.charAt(after)) ? wordChars(text, after) : after;
+        if (suffixEnd == after) {
+            out.add(text, start, apostrophe); // the apostrophe is a token of its own
+            return apostrophe;
+        }
+        String suffix = lowerCase(text, after, suffixEnd);
+        if ("t".equals(suffix) && apostrophe - start >= 2 && Character.toLowerCase(text.charAt(apostrophe - 1)) == 'n') {
+            out.add(text, start, apostrophe - 1);
+            out.add(text, apostrophe - 1, suffixEnd);
+            return suffixEnd;
+        }
+        if ("s".equals(suffix) || "m".equals(suffix) || "d".equals(suffix)
+                || "re".equals(suffix) || "ll".equals(suffix) || "ve".equals(suffix)) {
+            out.add(text, start, apostrophe);
+            out.add(text, apostrophe, suffixEnd);
+            return suffixEnd;
+        }
+        if (suffixEnd < n && isApostrophe(text.charAt(suffixEnd))) {
+            return clitic(text, start, suffixEnd, out); // O'Brien's
+        }
+        out.add(text, start, suffixEnd);
+        return suffixEnd;
+    }
+
+    // A word followed by a period: tsp. / etc. / end of sentence / mins.Add
+    private static int period(String text, int start, int dot, Tokens out) {
+        int n = text.length();
+        String lower = lowerCase(text, start, dot);
+        int next = dot + 1;
+        if (next < n && isWordChar(text.charAt(next))) {
+            if (Character.isUpperCase(text.charAt(next)) && !isDigit(text.charAt(start))) {
+                out.add(text, start, dot); // run-on sentences: "... 5 mins.Add the"
+                return dot;
+            }
+            // file names, domains: keep the dotted run together
+            int end = next;
+            while (end < n && (isWordChar(text.charAt(end))
+                    || (text.charAt(end) == '.' && end + 1 < n && isWordChar(text.charAt(end + 1))))) {
+                end++;
+            }
+            out.add(text, start, end);
+            return end;
+        }
+        boolean title = TITLES.contains(lower);
+        boolean abbreviation = title || ABBREVIATIONS.contains(lower);
+        if (!abbreviation && NUMBER_ABBREVIATIONS.contains(lower)) {
+            int following = skipSpaces(text, next);
+            abbreviation = following < n && isDigit(text.charAt(following));
+        }
+        if (!abbreviation) {
+            out.add(text, start, dot);
+            return dot;
+        }
+        if (next < n && text.charAt(next) == '.' && !(next + 1 < n && text.charAt(next + 1) == '.')) {
+            out.add(text, start, next); // "etc.." -> etc. .
+            return next;
+        }
+        int following = skipSpaces(text, next);
+        if (!title && following < n && Character.isUpperCase(text.charAt(following))) {
+            // the sentence ends here: the abbreviation keeps its period as a word, and the period ends the sentence
+            out.add(text, start, dot, text.substring(start, dot + 1));
+            out.add(text, dot, dot + 1);
+            return dot + 1;
+        }
+        out.add(text, start, next);
+        return next;
+    }
+
+    private static int symbol(String text, int start, Tokens out) {
+        int n = text.length();
+        char c = text.charAt(start);
+        switch (c) {
+            case '.': {
+                int end = run(text, start, '.');
+                if (end - start == 2) {
+                    out.add(text, start, start + 1); // ".." is two periods
+                    out.add(text, start + 1, end);
+                } else {
+                    out.add(text, start, end);
+                }
+                return end;
+            }
+            case '!':
+            case '?': {
+                int end = start + 1;
+                while (end < n && (text.charAt(end) == '!' || text.charAt(end) == '?')) {
+                    end++;
+                }
+                out.add(text, start, end);
+                return end;
+            }
+            case '-': {
+                int end = run(text, start, '-');
+                out.add(text, start, end);
+                return end;
+            }
+            case ':':
+            case ';': {
+                int end = emoticon(text, start);
+                out.add(text, start, end);
+                return end;
+            }
+            case '\u00B0': { // degree sign: °C, °F
+                boolean unit = start + 1 < n && (text.charAt(start + 1) == 'C' || text.charAt(start + 1) == 'F');
+                out.add(text, start, unit ? start + 2 : start + 1);
+                return unit ? start + 2 : start + 1;
+            }
+            default:
+                String fraction = vulgarFraction(c);
+                if (fraction != null) {
+                    out.add(text, start, start + 1, fraction);
+                    return start + 1;
+                }
+                int end = start + Character.charCount(text.codePointAt(start)); // keep surrogate pairs (emoji) whole
+                out.add(text, start, end);
+                return end;
+        }
+    }
+
+    // End of an emoticon such as :) :-) ;) :D starting at i, or i + 1 for a plain colon/semicolon.
+    private static int emoticon(String text, int i) {
+        int n = text.length();
+        int j = i + 1;
+        if (j < n && text.charAt(j) == '-') {
+            j++;
+        }
+        if (j < n) {
+            char mouth = text.charAt(j);
+            boolean face = mouth == ')' || mouth == '(' || mouth == 'D' || mouth == 'P' || mouth == 'p';
+            if (face && (j + 1 == n || !isWordChar(text.charAt(j + 1)))) {
+                return j + 1;
+            }
+        }
+        return i + 1;
+    }
+
+    private static String vulgarFraction(char c) {
+        switch (c) {
+            case '\u00BC': return "1/4";
+            case '\u00BD': return "1/2";
+            case '\u00BE': return "3/4";
+            case '\u2153': return "1/3";
+            case '\u2154': return "2/3";
+            case '\u215B': return "1/8";
+            default:       return null;
+        }
+    }
+
+    private static boolean isBoundary(String word) {
+        if (".".equals(word)) {
+            return true;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c != '!' && c != '?') {
+                return false;
+            }
+        }
+        return !word.isEmpty();
+    }
+
+    // Tokens that stay with the sentence a boundary just ended.
+    private static boolean isBoundaryFollower(String word) {
+        if (word.length() != 1) {
+            return "''".equals(word);
+        }
+        switch (word.charAt(0)) {
+            case ')': case ']': case '}': case '"': case '\'':
+            case '\u201D': case '\u2019': case '\u00BB':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int digits(String text, int i) {
+        while (i < text.length() && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int wordChars(String text, int i) {
+        while (i < text.length() && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int run(String text, int i, char c) {
+        while (i < text.length() && text.charAt(i) == c) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipSpaces(String text, int i) {
+        while (i < text.length() && (Character.isWhitespace(text.charAt(i)) || text.charAt(i) == NBSP)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String lowerCase(String text, int start, int end) {
+        return text.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return Character.isLetter(c);
+    }
+
+    // Letters, digits and combining marks (accents written as separate code points).
+    private static boolean isWordChar(char c) {
+        if (c < 128) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        if (Character.isLetterOrDigit(c)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '\u2019';
+    }
+
+    /** Collects tokens into sentences. */
+    private static final class Tokens {
+        final List<List<CoreLabel>> sentences = new ArrayList<>();
+        private List<CoreLabel> current = new ArrayList<>();
+        private boolean ended; // a boundary was seen; closing brackets and quotes may still follow
+
+        void add(String text, int begin, int end) {
+            add(text, begin, end, null);
+        }
+
+        void add(String text, int begin, int end, String word) {
+            String original = text.substring(begin, end);
+            if (word == null) {
+                word = original;
+            }
+            if (ended && !isBoundaryFollower(word)) {
+                finish();
+            }
+            CoreLabel token = new CoreLabel(6);
+            token.setWord(word);
+            token.setValue(word);
+            token.setOriginalText(original);
+            token.setBeginPosition(begin);
+            token.setEndPosition(end);
+            token.setIndex(current.size() + 1);
+            current.add(token);
+            if (isBoundary(word)) {
+                ended = true;
+            }
+        }
+
+        void finish() {
+            if (!current.isEmpty()) {
+                sentences.add(current);
+                current = new ArrayList<>();
+            }
+            ended = false;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.kitchen.model.processing;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of decoded sentences, shared by all recipes and threads of a {@link RecipeProcessor}.
+ *
+ * Instructions repeat a lot across recipes ("Serve hot.", "Mix well."), and the CRF tags each sentence on
+ * its own, so a sentence with the same tokens always decodes to the same spans. The key is the sentence's
+ * tokens joined by single spaces (see {@link #key}); the value holds the spans, whose char offsets are
+ * relative to the sentence, and the parameter words.
+ */
+public class SentenceCache {
+
+    /** Decoder output for one sentence; immutable. */
+    public static final class DecodedSentence {
+        private final List<EntitySpan> spans;
+        private final List<String> outsideWords;
+
+        public DecodedSentence(List<EntitySpan> spans, List<String> outsideWords) {
+            this.spans = Collections.unmodifiableList(spans);
+            this.outsideWords = Collections.unmodifiableList(outsideWords);
+        }
+
+        public List<EntitySpan> getSpans() {
+            return spans;
+        }
+
+        public List<String> getOutsideWords() {
+            return outsideWords;
+        }
+    }
+
+    /** Counters since creation or the last {@link #clear()}. */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int size;
+        public final long missNanos;
+
+        Stats(long hits, long misses, long evictions, int size, long missNanos) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.missNanos = missNanos;
+        }
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        /** CRF time the hits saved, estimated from the average cost of a miss. */
+        public double savedMillis() {
+            return misses == 0 ? 0 : hits * (missNanos / (double) misses) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses (%.1f%% hit rate), %d entries, %d evictions, ~%.0f ms of tagging saved",
+                    hits, misses, 100 * hitRate(), size, evictions, savedMillis());
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<String, DecodedSentence> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long missNanos;
+
+    /**
+     * @param capacity Maximum number of sentences kept.
+     */
+    public SentenceCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, DecodedSentence>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DecodedSentence> eldest) {
+                if (size() > SentenceCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cache key of a sentence: the original text of its tokens joined by single spaces. Where the tokenizer
+     * normalized a token (e.g. quotes, brackets), the normalized form the CRF sees is appended after a
+     * NUL character, since it can differ for the same text.
+     */
+    public static String key(List<CoreLabel> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (CoreLabel token : tokens) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            String original = token.originalText();
+            String word = token.word();
+            sb.append(original);
+            if (word != null && !word.equals(original)) {
+                sb.append('\0').append(word);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The cached result, or {@code null} (counted as a miss).
+     */
+    public synchronized DecodedSentence get(String key) {
+        DecodedSentence decoded = entries.get(key);
+        if (decoded != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return decoded;
+    }
+
+    /**
+     * @param computeNanos Time it took to produce {@code decoded}, for the saved-time estimate.
+     */
+    public synchronized void put(String key, DecodedSentence decoded, long computeNanos) {
+        entries.put(key, decoded);
+        missNanos += computeNanos;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size(), missNanos);
+    }
+
+    /**
+     * Drops all entries and resets the counters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        missNanos = 0;
+    }
+}
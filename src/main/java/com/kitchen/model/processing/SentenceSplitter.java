@@ -0,0 +1,45 @@
+package com.kitchen.model.processing;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Splits instruction text into sentences of tokens the NER model can tag directly. Every token has its word,
+ * original text and character offsets (relative to the text passed in) set; empty sentences are dropped.
+ */
+public interface SentenceSplitter {
+
+    /** The full CoreNLP {@code tokenize, ssplit} pipeline ({@link CoreNlpSentenceSplitter}). */
+    String CORENLP = "corenlp";
+    /** The lightweight splitter for recipe text ({@link RecipeSentenceSplitter}). */
+    String RECIPE = "recipe";
+
+    /** System property that selects the splitter used by default, {@link #CORENLP} or {@link #RECIPE}. */
+    String PROPERTY = "kitchen.splitter";
+
+    List<List<CoreLabel>> split(String text);
+
+    /**
+     * @param name {@link #CORENLP} or {@link #RECIPE}.
+     * @return A factory creating one splitter per call, for use in a {@code ThreadLocal}.
+     * @throws IllegalArgumentException For unknown names.
+     */
+    static Supplier<SentenceSplitter> factory(String name) {
+        if (CORENLP.equals(name)) {
+            return CoreNlpSentenceSplitter::new;
+        }
+        if (RECIPE.equals(name)) {
+            return RecipeSentenceSplitter::new;
+        }
+        throw new IllegalArgumentException("Unknown sentence splitter '" + name + "', expected " + CORENLP + " or " + RECIPE);
+    }
+
+    /**
+     * The factory selected by the {@value #PROPERTY} system property, {@link #RECIPE} if it isn't set.
+     */
+    static Supplier<SentenceSplitter> defaultFactory() {
+        return factory(System.getProperty(PROPERTY, RECIPE));
+    }
+}
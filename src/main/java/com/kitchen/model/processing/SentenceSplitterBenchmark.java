@@ -0,0 +1,199 @@
+package com.kitchen.model.processing;
+
+import com.kitchen.model.InputRecipe;
+import com.kitchen.model.Main;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares {@link RecipeSentenceSplitter} with {@link CoreNlpSentenceSplitter} on the recipe corpus:
+ * <ul>
+ *   <li>parity: the same sentences and tokens (word, original text, offsets) for every recipe, and the same
+ *       structured recipes from {@link RecipeProcessor} with either splitter;</li>
+ *   <li>construction time (the first instance in the JVM, and later ones);</li>
+ *   <li>throughput and allocation per recipe when splitting the whole corpus.</li>
+ * </ul>
+ *
+ * Usage: {@code SentenceSplitterBenchmark [recipeFile] [--model path] [--rounds N] [--no-model]}
+ */
+public class SentenceSplitterBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String recipeFile = "src/main/resources/complete_indian_recipes.json";
+        String modelPath = "src/main/resources/ner-model.ser.gz";
+        int rounds = 5;
+        boolean compareOutput = true;
+        for (int i = 0; i < args.length; i++) {
+            if ("--model".equals(args[i]) && i + 1 < args.length) {
+                modelPath = args[++i];
+            } else if ("--rounds".equals(args[i]) && i + 1 < args.length) {
+                rounds = Math.max(2, Integer.parseInt(args[++i]));
+            } else if ("--no-model".equals(args[i])) {
+                compareOutput = false;
+            } else {
+                recipeFile = args[i];
+            }
+        }
+
+        List<InputRecipe> recipes;
+        try (InputStream in = Files.newInputStream(Paths.get(recipeFile))) {
+            recipes = Main.readRecipes(in);
+        }
+        recipes.removeIf(r -> r.getInstructions() == null || r.getInstructions().isEmpty());
+        List<String> texts = new ArrayList<>();
+        for (InputRecipe recipe : recipes) {
+            texts.add(String.join(" ", recipe.getInstructions()));
+        }
+
+        // Construction: the first instance pays for class loading and (for CoreNLP) building the lexer.
+        long t0 = System.nanoTime();
+        SentenceSplitter recipeSplitter = new RecipeSentenceSplitter();
+        long recipeFirstNanos = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        SentenceSplitter coreNlpSplitter = new CoreNlpSentenceSplitter();
+        long coreNlpFirstNanos = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            new RecipeSentenceSplitter();
+        }
+        long recipeNextNanos = (System.nanoTime() - t0) / 10;
+        t0 = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            new CoreNlpSentenceSplitter();
+        }
+        long coreNlpNextNanos = (System.nanoTime() - t0) / 10;
+
+        int sentences = 0;
+        int tokens = 0;
+        int sentenceMismatches = 0;
+        int tokenMismatches = 0;
+        for (int r = 0; r < texts.size(); r++) {
+            List<List<CoreLabel>> expected = coreNlpSplitter.split(texts.get(r));
+            List<List<CoreLabel>> actual = recipeSplitter.split(texts.get(r));
+            sentences += expected.size();
+            for (List<CoreLabel> sentence : expected) {
+                tokens += sentence.size();
+            }
+            String expectedSentences = format(expected, false);
+            String actualSentences = format(actual, false);
+            if (!expectedSentences.equals(actualSentences)) {
+                if (sentenceMismatches++ < 10) {
+                    printDifference(recipes.get(r).getName(), expectedSentences, actualSentences);
+                }
+            } else if (!format(expected, true).equals(format(actual, true))) {
+                if (tokenMismatches++ < 10) {
+                    printDifference(recipes.get(r).getName(), format(expected, true), format(actual, true));
+                }
+            }
+        }
+
+        Measurement recipeRun = measure(recipeSplitter, texts, rounds);
+        Measurement coreNlpRun = measure(coreNlpSplitter, texts, rounds);
+
+        int outputMismatches = -1;
+        if (compareOutput) {
+            outputMismatches = 0;
+            try (RecipeProcessor withCoreNlp = new RecipeProcessor(modelPath, 1, 0, SentenceSplitter.factory(SentenceSplitter.CORENLP));
+                 RecipeProcessor withRecipe = new RecipeProcessor(modelPath, 1, 0, SentenceSplitter.factory(SentenceSplitter.RECIPE))) {
+                for (InputRecipe recipe : recipes) {
+                    String expected = withCoreNlp.processRecipe(recipe).toString();
+                    String actual = withRecipe.processRecipe(recipe).toString();
+                    if (!expected.equals(actual) && outputMismatches++ < 5) {
+                        printDifference(recipe.getName(), expected, actual);
+                    }
+                }
+            }
+        }
+
+        System.out.println("------------------------------------------");
+        System.out.println("Recipes: " + texts.size() + ", sentences: " + sentences + ", tokens: " + tokens);
+        System.out.printf("Construction, first instance: recipe %8.2f ms, corenlp %8.2f ms%n",
+                recipeFirstNanos / 1e6, coreNlpFirstNanos / 1e6);
+        System.out.printf("Construction, later instances: recipe %7.3f ms, corenlp %8.2f ms%n",
+                recipeNextNanos / 1e6, coreNlpNextNanos / 1e6);
+        System.out.println("recipe:  " + recipeRun.describe(sentences, texts.size()));
+        System.out.println("corenlp: " + coreNlpRun.describe(sentences, texts.size()));
+        System.out.printf("Speed-up: %.1fx%n", coreNlpRun.nanosPerRound / (double) recipeRun.nanosPerRound);
+        System.out.println("Recipes with different sentence boundaries or words: " + sentenceMismatches
+                + "; with different original text or offsets only: " + tokenMismatches);
+        System.out.println("Identical structured output: " + (outputMismatches < 0 ? "not compared"
+                : (outputMismatches == 0) + (outputMismatches == 0 ? "" : " (" + outputMismatches + " recipes differ)")));
+        System.out.println("------------------------------------------");
+    }
+
+    private static final class Measurement {
+        final long nanosPerRound;
+        final long bytesPerRound; // -1 if the JVM can't tell
+
+        Measurement(long nanosPerRound, long bytesPerRound) {
+            this.nanosPerRound = nanosPerRound;
+            this.bytesPerRound = bytesPerRound;
+        }
+
+        String describe(int sentences, int recipes) {
+            return String.format("%8.1f ms per corpus pass, %9.0f sentences/s, %s per recipe", nanosPerRound / 1e6,
+                    sentences / (nanosPerRound / 1e9), bytesPerRound < 0 ? "n/a" : (bytesPerRound / recipes / 1024) + " KB allocated");
+        }
+    }
+
+    // Splits the corpus `rounds` times; the first round is warm-up.
+    private static Measurement measure(SentenceSplitter splitter, List<String> texts, int rounds) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long id = Thread.currentThread().getId();
+        long nanos = 0;
+        long bytes = 0;
+        for (int round = 0; round < rounds; round++) {
+            long allocatedBefore = allocation == null ? 0 : allocation.getThreadAllocatedBytes(id);
+            long start = System.nanoTime();
+            for (String text : texts) {
+                splitter.split(text);
+            }
+            if (round > 0) {
+                nanos += System.nanoTime() - start;
+                bytes += allocation == null ? 0 : allocation.getThreadAllocatedBytes(id) - allocatedBefore;
+            }
+        }
+        return new Measurement(nanos / (rounds - 1), allocation == null ? -1 : bytes / (rounds - 1));
+    }
+
+    // Words separated by spaces, sentences by " | "; with details, "word/original@begin-end" per token.
+    private static String format(List<List<CoreLabel>> sentences, boolean details) {
+        StringBuilder sb = new StringBuilder();
+        for (List<CoreLabel> sentence : sentences) {
+            if (sb.length() > 0) {
+                sb.append(" | ");
+            }
+            for (CoreLabel token : sentence) {
+                sb.append(token.word());
+                if (details) {
+                    sb.append('/').append(token.originalText()).append('@')
+                            .append(token.beginPosition()).append('-').append(token.endPosition());
+                }
+                sb.append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    // Prints both versions from the first character where they differ.
+    private static void printDifference(String name, String expected, String actual) {
+        int at = 0;
+        while (at < expected.length() && at < actual.length() && expected.charAt(at) == actual.charAt(at)) {
+            at++;
+        }
+        int from = Math.max(0, at - 60);
+        System.out.println("Difference in '" + name + "':\n  corenlp: ..."
+                + expected.substring(from, Math.min(expected.length(), at + 80)) + "\n  recipe:  ..."
+                + actual.substring(from, Math.min(actual.length(), at + 80)));
+    }
+}
@@ -0,0 +1,82 @@
+package com.kitchen.model.processing;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe totals of the time {@link RecipeProcessor} spends in each stage, summed over all threads.
+ * Sentences answered by the {@link SentenceCache} add nothing to tagging or decoding.
+ */
+public class StageTimings {
+
+    private final LongAdder recipes = new LongAdder();
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder splitNanos = new LongAdder();
+    private final LongAdder tagNanos = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    void recordRecipe(long nanos) {
+        recipes.increment();
+        totalNanos.add(nanos);
+    }
+
+    void recordSplit(long nanos, int sentenceCount) {
+        splitNanos.add(nanos);
+        sentences.add(sentenceCount);
+    }
+
+    void recordTag(long nanos) {
+        tagNanos.add(nanos);
+    }
+
+    void recordDecode(long nanos) {
+        decodeNanos.add(nanos);
+    }
+
+    public long getRecipes() {
+        return recipes.sum();
+    }
+
+    public long getSentences() {
+        return sentences.sum();
+    }
+
+    public long getSplitNanos() {
+        return splitNanos.sum();
+    }
+
+    public long getTagNanos() {
+        return tagNanos.sum();
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos.sum();
+    }
+
+    /** Everything else: cache lookups and building the steps. */
+    public long getOtherNanos() {
+        return Math.max(0, totalNanos.sum() - splitNanos.sum() - tagNanos.sum() - decodeNanos.sum());
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public void reset() {
+        recipes.reset();
+        sentences.reset();
+        splitNanos.reset();
+        tagNanos.reset();
+        decodeNanos.reset();
+        totalNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        double total = Math.max(1, getTotalNanos());
+        return String.format("split %.0f ms (%.0f%%), tag %.0f ms (%.0f%%), decode %.0f ms (%.0f%%), other %.0f ms (%.0f%%) over %d recipes / %d sentences",
+                getSplitNanos() / 1e6, 100 * getSplitNanos() / total, getTagNanos() / 1e6, 100 * getTagNanos() / total,
+                getDecodeNanos() / 1e6, 100 * getDecodeNanos() / total, getOtherNanos() / 1e6, 100 * getOtherNanos() / total,
+                getRecipes(), getSentences());
+    }
+}
@@ -0,0 +1,276 @@
+package com.kitchen.model.processing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kitchen.model.InputRecipe;
+import com.kitchen.model.StructuredRecipe;
+import com.kitchen.util.Hashing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of {@link StructuredRecipe}s, so a recipe is only run through NER again when its
+ * instructions or the model change.
+ *
+ * Entries are keyed by a hash of the recipe name and instructions; the file as a whole belongs to one
+ * model (hash of the model file) and one {@link #FORMAT_VERSION} of the processing code, and is ignored
+ * if either differs. The file is gzipped JSON Lines: a header line followed by one line per recipe.
+ * It is rewritten atomically by {@link #save()}. When the model is reloaded at runtime, {@link #invalidate}
+ * drops every entry, and results still arriving from the previous model are not stored.
+ */
+public class StructuredRecipeCache {
+
+    /** Bump when RecipeProcessor's output for the same model and recipe changes. */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int SAVE_EVERY = 100;
+    private static final int PRECOMPUTE_CHUNK = 50;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path file;
+    private volatile String modelHash;
+    private final Map<String, StructuredRecipe> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * Opens the cache, loading existing entries if the file was built for the same model and format.
+     */
+    public StructuredRecipeCache(Path file, String modelHash) {
+        this.file = file;
+        this.modelHash = modelHash;
+        if (Files.exists(file)) {
+            try {
+                load();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable structured recipe cache " + file + ": " + e.getMessage());
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Hash of the parts of a recipe the NER output depends on. Uses {@link InputRecipe#getContentHash()} when the
+     * recipe already knows it, so looking up an indexed recipe doesn't load its details.
+     */
+    public static String recipeHash(InputRecipe recipe) {
+        String known = recipe.getContentHash();
+        if (known != null) {
+            return known;
+        }
+        StringBuilder sb = new StringBuilder();
+        String name = recipe.getName();
+        sb.append(name == null ? 0 : name.length()).append(':').append(name).append('\n');
+        if (recipe.getInstructions() != null) {
+            for (String instruction : recipe.getInstructions()) {
+                sb.append(instruction == null ? 0 : instruction.length()).append(':').append(instruction).append('\n');
+            }
+        }
+        return Hashing.sha256(sb.toString());
+    }
+
+    /**
+     * Hash of a model given as a file path or, if no such file exists, as a classpath resource name.
+     */
+    public static String modelHash(String pathOrResourceName) throws IOException {
+        File modelFile = new File(pathOrResourceName);
+        InputStream in = modelFile.isFile()
+                ? new FileInputStream(modelFile)
+                : StructuredRecipeCache.class.getClassLoader().getResourceAsStream(pathOrResourceName);
+        if (in == null) {
+            throw new IOException("Model not found: " + pathOrResourceName);
+        }
+        try (InputStream stream = in) {
+            return Hashing.sha256(stream);
+        }
+    }
+
+    public String getModelHash() {
+        return modelHash;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The cached result, or {@code null} if the recipe was never processed or changed since.
+     */
+    public StructuredRecipe get(InputRecipe recipe) {
+        return entries.get(recipeHash(recipe));
+    }
+
+    public void put(InputRecipe recipe, StructuredRecipe structured) {
+        entries.put(recipeHash(recipe), structured);
+        dirty = true;
+    }
+
+    /**
+     * Stores a result computed with the given model version, unless the cache has moved on to another model
+     * since (see {@link RecipeProcessor#getModelVersion()}, read before processing).
+     */
+    public void put(InputRecipe recipe, StructuredRecipe structured, String modelVersion) {
+        if (!modelHash.equals(modelVersion)) {
+            return;
+        }
+        String hash = recipeHash(recipe);
+        entries.put(hash, structured);
+        dirty = true;
+        if (!modelHash.equals(modelVersion)) {
+            entries.remove(hash, structured); // invalidated meanwhile
+        }
+    }
+
+    /**
+     * Drops all entries because the model changed; they are recomputed on demand or by {@link #precompute}.
+     */
+    public synchronized void invalidate(String newModelHash) {
+        if (newModelHash.equals(modelHash)) {
+            return;
+        }
+        modelHash = newModelHash;
+        entries.clear();
+        dirty = true; // the file still holds the old model's results
+    }
+
+    /**
+     * Returns the cached result or processes the recipe now and caches it.
+     */
+    public StructuredRecipe getOrCompute(InputRecipe recipe, RecipeProcessor processor) {
+        StructuredRecipe cached = get(recipe);
+        if (cached != null) {
+            return cached;
+        }
+        String modelVersion = processor.getModelVersion();
+        StructuredRecipe structured = processor.processRecipe(recipe);
+        put(recipe, structured, modelVersion);
+        return structured;
+    }
+
+    /**
+     * Processes every recipe without an up-to-date entry on a background thread (using the processor's
+     * worker pool), saving along the way and at the end. Stops early if the model is reloaded meanwhile.
+     *
+     * @return Completes with the number of recipes processed.
+     */
+    public CompletableFuture<Integer> precompute(List<InputRecipe> recipes, RecipeProcessor processor) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<InputRecipe> stale = new ArrayList<>();
+            for (InputRecipe recipe : recipes) {
+                if (get(recipe) == null) {
+                    stale.add(recipe);
+                }
+            }
+            long start = System.nanoTime();
+            int sinceSave = 0;
+            int processed = 0;
+            for (int i = 0; i < stale.size(); i += PRECOMPUTE_CHUNK) {
+                String modelVersion = processor.getModelVersion();
+                if (!modelVersion.equals(modelHash)) {
+                    break; // a newer model took over; its own precompute pass fills the cache
+                }
+                List<InputRecipe> chunk = stale.subList(i, Math.min(stale.size(), i + PRECOMPUTE_CHUNK));
+                List<StructuredRecipe> results = processor.processAll(chunk);
+                for (int k = 0; k < chunk.size(); k++) {
+                    put(chunk.get(k), results.get(k), modelVersion);
+                }
+                processed += chunk.size();
+                sinceSave += chunk.size();
+                if (sinceSave >= SAVE_EVERY) {
+                    saveQuietly();
+                    sinceSave = 0;
+                }
+            }
+            saveQuietly();
+            if (processed > 0) {
+                System.out.printf("Precomputed %d structured recipes in %.1f s (%d cached).%n",
+                        processed, (System.nanoTime() - start) / 1e9, entries.size());
+            }
+            return processed;
+        }, runnable -> {
+            Thread thread = new Thread(runnable, "structured-recipe-precompute");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        });
+    }
+
+    /**
+     * Writes the cache if anything changed since the last save.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            ObjectNode header = mapper.createObjectNode();
+            header.put("version", FORMAT_VERSION);
+            header.put("modelHash", modelHash);
+            writer.write(mapper.writeValueAsString(header));
+            writer.newLine();
+            for (Map.Entry<String, StructuredRecipe> entry : entries.entrySet()) {
+                ObjectNode line = mapper.createObjectNode();
+                line.put("hash", entry.getKey());
+                line.set("recipe", mapper.valueToTree(entry.getValue()));
+                writer.write(mapper.writeValueAsString(line));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            System.err.println("Could not save structured recipe cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return;
+            }
+            JsonNode header = mapper.readTree(headerLine);
+            if (header.path("version").asInt() != FORMAT_VERSION || !modelHash.equals(header.path("modelHash").asText())) {
+                System.out.println("Structured recipe cache was built with a different model or format, recomputing.");
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JsonNode node = mapper.readTree(line);
+                entries.put(node.get("hash").asText(), mapper.treeToValue(node.get("recipe"), StructuredRecipe.class));
+            }
+        }
+    }
+}
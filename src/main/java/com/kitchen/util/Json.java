@@ -0,0 +1,26 @@
+package com.kitchen.util;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson mappers shared by the crawler and the NER tooling.
+ */
+public final class Json {
+
+    /**
+     * Binds plain classes by their non-transient fields, whatever their visibility, ignoring getters. Unknown
+     * properties are skipped and null fields aren't written, so files written by earlier versions still load.
+     */
+    public static final ObjectMapper FIELDS = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private Json() {
+    }
+}
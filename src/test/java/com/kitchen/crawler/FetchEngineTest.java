@@ -0,0 +1,125 @@
+package com.kitchen.crawler;
+
+import org.jsoup.HttpStatusException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Fetching and throttling against a {@link StubPageServer} on an ephemeral port.
+ */
+public class FetchEngineTest {
+
+    private static final String LISTING_PAGE = "/category/recipes/south-indian/page/1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubPageServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        Path pages = folder.newFolder("pages").toPath();
+        Files.write(pages.resolve(StubPageServer.fileNameFor(LISTING_PAGE)),
+                ("<html><body><h2 class=\"entry-title ast-blog-single-element\">"
+                        + "<a href=\"" + StubPageServer.DEFAULT_ORIGIN + "/rasam/\">Rasam</a></h2></body></html>")
+                        .getBytes(StandardCharsets.UTF_8));
+        server = new StubPageServer(pages, 0, StubPageServer.DEFAULT_ORIGIN);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void fetchReturnsThePageWithLinksPointingAtTheStub() throws IOException {
+        try (FetchEngine engine = new FetchEngine(1, new TokenBucketRateLimiter(100, 10), 0, 10, 5000)) {
+            FetchResult result = engine.fetch(server.getBaseUrl() + LISTING_PAGE);
+
+            assertEquals(200, result.getStatusCode());
+            assertTrue(result.getBody(), result.getBody().contains("href=\"" + server.getBaseUrl() + "/rasam/\""));
+            assertEquals(1, engine.getStats().getFetchedCount());
+        }
+    }
+
+    @Test
+    public void missingPageFailsWithoutRetrying() {
+        // A retry would sleep through the 10 s backoff.
+        try (FetchEngine engine = new FetchEngine(1, new TokenBucketRateLimiter(100, 10), 3, 10_000, 5000)) {
+            long start = System.nanoTime();
+            try {
+                engine.fetch(server.getBaseUrl() + "/no/such/page");
+                fail("Expected a 404");
+            } catch (HttpStatusException e) {
+                assertEquals(404, e.getStatusCode());
+            } catch (IOException e) {
+                fail("Expected an HttpStatusException, got " + e);
+            }
+            assertTrue(System.nanoTime() - start < 5_000_000_000L);
+            assertEquals(1, engine.getStats().getFailureCount());
+        }
+    }
+
+    @Test
+    public void connectionErrorsAreRetriedWithBackoff() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        try (FetchEngine engine = new FetchEngine(1, new TokenBucketRateLimiter(100, 10), 2, 200, 1000)) {
+            long start = System.nanoTime();
+            try {
+                engine.fetch("http://localhost:" + closedPort + LISTING_PAGE);
+                fail("Expected the connection to be refused");
+            } catch (IOException expected) {
+                // every attempt failed
+            }
+            // Two retries: 200 ms, then 400 ms.
+            assertTrue(System.nanoTime() - start >= 600_000_000L);
+            assertEquals(1, engine.getStats().getFailureCount());
+        }
+    }
+
+    @Test
+    public void requestsToOneHostArePacedByTheRateLimiter() throws IOException {
+        // Burst of 1 at 5 requests/s: after the first request each one waits about 200 ms.
+        try (FetchEngine engine = new FetchEngine(4, new TokenBucketRateLimiter(5, 1), 0, 10, 5000)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 6; i++) {
+                engine.fetch(server.getBaseUrl() + LISTING_PAGE + "?n=" + i); // the stub ignores the query
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue("6 requests took only " + elapsedMillis + " ms", elapsedMillis >= 900);
+            assertEquals(6, engine.getStats().getFetchedCount());
+        }
+    }
+
+    @Test
+    public void burstCapacityIsNotThrottled() throws IOException {
+        try (FetchEngine engine = new FetchEngine(4, new TokenBucketRateLimiter(0.5, 4), 0, 10, 5000)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 4; i++) {
+                engine.fetch(server.getBaseUrl() + LISTING_PAGE);
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Past the burst each request would wait 2 s.
+            assertTrue("4 requests within the burst took " + elapsedMillis + " ms", elapsedMillis < 1900);
+        }
+    }
+}
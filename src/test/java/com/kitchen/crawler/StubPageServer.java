@@ -0,0 +1,89 @@
+package com.kitchen.crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server that replays saved pages so the crawler can be exercised without the live site.
+ *
+ * A request for {@code /category/recipes/south-indian/page/1} is answered with the file
+ * {@code category_recipes_south-indian_page_1.html} from the page directory. Links to the original
+ * site inside served pages are rewritten to point back at this server.
+ *
+ * Usage: {@code StubPageServer <pageDir> [port] [originalOrigin]}
+ */
+public class StubPageServer {
+
+    public static final String DEFAULT_ORIGIN = "https://www.kannammacooks.com";
+
+    private final HttpServer server;
+    private final Path pageDir;
+    private final String originalOrigin;
+
+    public StubPageServer(Path pageDir, int port, String originalOrigin) throws IOException {
+        this.pageDir = pageDir;
+        this.originalOrigin = originalOrigin;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newFixedThreadPool(4));
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Stub page server serving " + pageDir.toAbsolutePath() + " at " + getBaseUrl());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Maps a request path to the saved page file name.
+     */
+    public static String fileNameFor(String path) {
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return (trimmed.isEmpty() ? "index" : trimmed.replace('/', '_')) + ".html";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Path file = pageDir.resolve(fileNameFor(exchange.getRequestURI().getPath()));
+        byte[] body;
+        int status;
+        if (Files.isRegularFile(file)) {
+            String html = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            body = html.replace(originalOrigin, getBaseUrl()).getBytes(StandardCharsets.UTF_8);
+            status = 200;
+        } else {
+            body = ("Not found: " + file.getFileName()).getBytes(StandardCharsets.UTF_8);
+            status = 404;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: StubPageServer <pageDir> [port] [originalOrigin]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8089;
+        String origin = args.length > 2 ? args[2] : DEFAULT_ORIGIN;
+        new StubPageServer(Paths.get(args[0]), port, origin).start();
+    }
+}
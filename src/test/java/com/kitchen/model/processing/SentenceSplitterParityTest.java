@@ -0,0 +1,81 @@
+package com.kitchen.model.processing;
+
+import com.kitchen.model.InputRecipe;
+import com.kitchen.model.Main;
+import edu.stanford.nlp.ling.CoreLabel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * {@link RecipeSentenceSplitter} must produce the same sentences and tokens (word, original text, offsets) as
+ * {@link CoreNlpSentenceSplitter}, which the NER training data was made with.
+ */
+public class SentenceSplitterParityTest {
+
+    private static final int CORPUS_SAMPLE = 25;
+
+    // One line per rule in the RecipeSentenceSplitter class doc.
+    private static final String[] SAMPLE = {
+            "Heat 2 tbsp. oil in a non-stick pan. Add 1 1/2 cups of water and bring to a boil.",
+            "Soak 1,000 g of rice for approx. 4 hours, then drain. Add 1.5 tsp salt.",
+            "Add ½ tsp turmeric and a pinch of salt, e.g. rock salt.",
+            "Pre-heat the oven to 180°C (350°F). Bake for 25-30 minutes!",
+            "Mix everything well (do not over-mix) and serve hot with \"coconut chutney\".",
+            "Don't let it burn... Stir well; it's ready when the oil separates!!!",
+            "Grind coconut and cumin to a smooth paste. Is it too thick? Add 2-3 tbsp water.",
+            "Add 500ml milk and 2cups of rava, stir (keep stirring.) Serve :)",
+    };
+
+    private static RecipeSentenceSplitter recipeSplitter;
+    private static CoreNlpSentenceSplitter coreNlpSplitter;
+
+    @BeforeClass
+    public static void createSplitters() {
+        recipeSplitter = new RecipeSentenceSplitter();
+        coreNlpSplitter = new CoreNlpSentenceSplitter();
+    }
+
+    @Test
+    public void handWrittenSampleSplitsLikeCoreNlp() {
+        for (String text : SAMPLE) {
+            assertSameSplit(text);
+        }
+    }
+
+    @Test
+    public void bundledRecipesSplitLikeCoreNlp() throws IOException {
+        List<InputRecipe> recipes;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("complete_indian_recipes.json")) {
+            assertNotNull("complete_indian_recipes.json not on the classpath", in);
+            recipes = Main.readRecipes(in);
+        }
+        for (InputRecipe recipe : recipes.subList(0, Math.min(CORPUS_SAMPLE, recipes.size()))) {
+            for (String instruction : recipe.getInstructions()) {
+                assertSameSplit(instruction);
+            }
+        }
+    }
+
+    private static void assertSameSplit(String text) {
+        assertEquals(text, render(coreNlpSplitter.split(text)), render(recipeSplitter.split(text)));
+    }
+
+    private static String render(List<List<CoreLabel>> sentences) {
+        StringBuilder sb = new StringBuilder();
+        for (List<CoreLabel> sentence : sentences) {
+            for (CoreLabel token : sentence) {
+                sb.append(token.word()).append('/').append(token.originalText()).append('@')
+                        .append(token.beginPosition()).append('-').append(token.endPosition()).append(' ');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}